@@ -0,0 +1,91 @@
+import java.util.SplittableRandom;
+
+/**
+ * 按边权加权选择后继节点的采样器：每个节点在第一次被访问时建立 Walker 别名表并缓存，
+ * 之后每次采样只需一个随机下标和一次比较，代价为 O(1)。
+ * 别名表对象的字段都是 final 的，多个线程并发建立同一个节点的别名表时最多重复计算，不会读到不完整的表。
+ */
+public class AliasSampler {
+    private final CompactGraph graph;
+    private final AliasTable[] tables;
+
+    public AliasSampler(CompactGraph graph) {
+        this.graph = graph;
+        this.tables = new AliasTable[graph.size()];
+    }
+
+    // 该采样器对应的紧凑图
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * 以与边权成正比的概率选择 u 的一个后继节点，u 没有出边时返回 -1。
+     */
+    public int next(int u, SplittableRandom random) {
+        int degree = graph.outDegree(u);
+        if (degree <= 1) {
+            return degree == 0 ? -1 : graph.target(graph.outStart(u));
+        }
+        AliasTable table = tables[u];
+        if (table == null) {
+            table = new AliasTable(graph, u);
+            tables[u] = table;
+        }
+        int k = random.nextInt(degree);
+        if (random.nextDouble() >= table.probability[k]) {
+            k = table.alias[k];
+        }
+        return graph.target(graph.outStart(u) + k);
+    }
+
+    // 单个节点的别名表，下标为该节点出边的相对位置
+    private static final class AliasTable {
+        final double[] probability;
+        final int[] alias;
+
+        // Vose 算法：把每条边的概率放大 degree 倍后，用不足 1 的小桶与超过 1 的大桶两两配对
+        AliasTable(CompactGraph graph, int u) {
+            int from = graph.outStart(u);
+            int degree = graph.outDegree(u);
+            long total = 0;
+            for (int e = from; e < from + degree; e++) {
+                total += graph.weight(e);
+            }
+            probability = new double[degree];
+            alias = new int[degree];
+            double[] scaled = new double[degree];
+            int[] small = new int[degree];
+            int[] large = new int[degree];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int k = 0; k < degree; k++) {
+                scaled[k] = (double) graph.weight(from + k) * degree / total;
+                if (scaled[k] < 1.0) {
+                    small[smallCount++] = k;
+                } else {
+                    large[largeCount++] = k;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+                if (scaled[more] < 1.0) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            // 剩余的桶由于舍入误差可能略小于或大于 1，统一视为满桶
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1.0;
+            }
+            while (smallCount > 0) {
+                probability[small[--smallCount]] = 1.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.*;
+
+/**
+ * 点对点的双向 Dijkstra 搜索：正向从起点沿出边搜索，反向从终点沿入边搜索，每次扩展堆较小的一侧。
+ * 当两侧堆顶距离之和严格大于已知最短距离 mu 时停止，此时任何一条最短路径上的每个节点
+ * 至少已在一个方向上确定了最短距离，因此仍能还原出所有等长的最短路径：
+ * 每条最短路径按“最后一个正向已确定的节点 u”唯一地拆成 正向前缀 s..u + 边 (u, v) + 反向后缀 v..t，
+ * 另有整条路径都在正向（或都在反向）已确定的两种情况。
+ * 结果引用当前线程的搜索工作区，只在本线程下一次搜索之前有效。
+ */
+public class BidirectionalSearch {
+    private final CompactGraph graph;
+    private final int source;
+    private final int target;
+    private final ShortestPathSearch forward;
+    private final ShortestPathSearch backward;
+    private final long length; // 最短距离 mu，不可达时为 Long.MAX_VALUE
+    private final int[] splitEdges; // 依次存放拆分边 (u, v)
+
+    private BidirectionalSearch(CompactGraph graph, int source, int target) {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        this.forward = ShortestPathSearch.forCurrentThread();
+        this.backward = ShortestPathSearch.reverseForCurrentThread();
+        this.length = search();
+        this.splitEdges = length == Long.MAX_VALUE ? new int[0] : collectSplitEdges();
+    }
+
+    public static BidirectionalSearch run(CompactGraph graph, int source, int target) {
+        return new BidirectionalSearch(graph, source, target);
+    }
+
+    // 最短路径的总权重，不可达时返回 -1
+    public int length() {
+        return length == Long.MAX_VALUE ? -1 : (int) length;
+    }
+
+    private long search() {
+        forward.start(graph, source, false);
+        backward.start(graph, target, true);
+        long best = source == target ? 0 : Long.MAX_VALUE;
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            if ((long) forward.peekDistance() + backward.peekDistance() > best) {
+                break;
+            }
+            if (forward.frontierSize() <= backward.frontierSize()) {
+                int u = forward.settleNext();
+                for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                    int v = graph.target(e);
+                    if (backward.distance(v) != ShortestPathTree.UNREACHABLE) {
+                        best = Math.min(best, (long) forward.distance(u) + graph.weight(e) + backward.distance(v));
+                    }
+                }
+            } else {
+                int v = backward.settleNext();
+                for (int e = graph.inStart(v); e < graph.inEnd(v); e++) {
+                    int u = graph.source(e);
+                    if (forward.distance(u) != ShortestPathTree.UNREACHABLE) {
+                        best = Math.min(best, (long) forward.distance(u) + graph.inWeight(e) + backward.distance(v));
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // 找出所有拆分边：u 正向已确定，v 正向未确定但反向已确定，且 d(s,u) + w + d(v,t) == mu
+    private int[] collectSplitEdges() {
+        int[] edges = new int[8];
+        int count = 0;
+        for (int k = 0; k < forward.settledCount(); k++) {
+            int u = forward.settled(k);
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                int v = graph.target(e);
+                if (!forward.isSettled(v) && backward.isSettled(v)
+                        && (long) forward.distance(u) + graph.weight(e) + backward.distance(v) == length) {
+                    if (count + 2 > edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[count++] = u;
+                    edges[count++] = v;
+                }
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    // 整条路径都已在正向确定
+    private boolean hasForwardOnlyPaths() {
+        return forward.isSettled(target) && forward.distance(target) == length;
+    }
+
+    // 正向一个节点都没有确定，整条路径都已在反向确定
+    private boolean hasBackwardOnlyPaths() {
+        return !forward.isSettled(source) && backward.isSettled(source) && backward.distance(source) == length;
+    }
+
+    /**
+     * 统计最短路径条数而不构造路径：按确定顺序（即拓扑顺序）分别在正向前驱图和反向后继图上累加路径数，
+     * 再对每条拆分边累加 前缀条数 * 后缀条数。超过 Long.MAX_VALUE 时返回 Long.MAX_VALUE。
+     */
+    public long countPaths() {
+        if (length == Long.MAX_VALUE) {
+            return 0;
+        }
+        long[] forwardCounts = forward.beginCount(graph.size());
+        for (int k = 0; k < forward.settledCount(); k++) {
+            int u = forward.settled(k);
+            long total = u == source ? 1 : 0;
+            for (int e = graph.inStart(u); e < graph.inEnd(u); e++) {
+                int p = graph.source(e);
+                if (forward.isSettled(p) && forward.distance(p) + graph.inWeight(e) == forward.distance(u)) {
+                    total = saturatedAdd(total, forwardCounts[p]);
+                }
+            }
+            forwardCounts[u] = total;
+        }
+        long[] backwardCounts = backward.beginCount(graph.size());
+        for (int k = 0; k < backward.settledCount(); k++) {
+            int v = backward.settled(k);
+            long total = v == target ? 1 : 0;
+            for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+                int q = graph.target(e);
+                if (backward.isSettled(q) && graph.weight(e) + backward.distance(q) == backward.distance(v)) {
+                    total = saturatedAdd(total, backwardCounts[q]);
+                }
+            }
+            backwardCounts[v] = total;
+        }
+
+        long count = 0;
+        if (hasForwardOnlyPaths()) {
+            count = saturatedAdd(count, forwardCounts[target]);
+        }
+        if (hasBackwardOnlyPaths()) {
+            count = saturatedAdd(count, backwardCounts[source]);
+        }
+        for (int k = 0; k < splitEdges.length; k += 2) {
+            long prefixes = forwardCounts[splitEdges[k]];
+            long suffixes = backwardCounts[splitEdges[k + 1]];
+            long product = prefixes != 0 && suffixes > Long.MAX_VALUE / prefixes ? Long.MAX_VALUE : prefixes * suffixes;
+            count = saturatedAdd(count, product);
+        }
+        return count;
+    }
+
+    // 返回前 limit 条最短路径，每个元素为 [路径上的单词列表, 总权重]
+    public List<List<Object>> paths(int limit) {
+        List<List<Object>> allPaths = new ArrayList<>();
+        Iterator<List<String>> iterator = pathIterator();
+        while (allPaths.size() < limit && iterator.hasNext()) {
+            List<Object> resultPath = new ArrayList<>();
+            resultPath.add(iterator.next());
+            resultPath.add((int) length);
+            allPaths.add(resultPath);
+        }
+        return allPaths;
+    }
+
+    // 按需逐条枚举所有最短路径
+    public Iterator<List<String>> pathIterator() {
+        if (length == Long.MAX_VALUE) {
+            return Collections.emptyIterator();
+        }
+        return new PathIterator();
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    // 从 node 沿正向前驱回溯到起点的路径，节点顺序为从 node 到起点
+    private Iterator<int[]> forwardPaths(int node) {
+        return new DagPathIterator(node) {
+            @Override
+            protected int edgeStart(int current) {
+                return graph.inStart(current);
+            }
+
+            @Override
+            protected int edgeEnd(int current) {
+                return graph.inEnd(current);
+            }
+
+            @Override
+            protected int follow(int current, int e) {
+                int p = graph.source(e);
+                return forward.isSettled(p) && forward.distance(p) + graph.inWeight(e) == forward.distance(current) ? p : -1;
+            }
+
+            @Override
+            protected boolean isTerminal(int current) {
+                return current == source;
+            }
+        };
+    }
+
+    // 从 node 沿反向后继前进到终点的路径，节点顺序为从 node 到终点
+    private Iterator<int[]> backwardPaths(int node) {
+        return new DagPathIterator(node) {
+            @Override
+            protected int edgeStart(int current) {
+                return graph.outStart(current);
+            }
+
+            @Override
+            protected int edgeEnd(int current) {
+                return graph.outEnd(current);
+            }
+
+            @Override
+            protected int follow(int current, int e) {
+                int q = graph.target(e);
+                return backward.isSettled(q) && graph.weight(e) + backward.distance(q) == backward.distance(current) ? q : -1;
+            }
+
+            @Override
+            protected boolean isTerminal(int current) {
+                return current == target;
+            }
+        };
+    }
+
+    // 依次枚举 全正向路径、全反向路径、以及每条拆分边上 前缀 x 后缀 的组合
+    private final class PathIterator implements Iterator<List<String>> {
+        private Iterator<int[]> forwardOnly = hasForwardOnlyPaths() ? forwardPaths(target) : null;
+        private Iterator<int[]> backwardOnly = hasBackwardOnlyPaths() ? backwardPaths(source) : null;
+        private int splitIndex = -2;
+        private Iterator<int[]> prefixes = Collections.emptyIterator();
+        private int[] prefix;
+        private Iterator<int[]> suffixes = Collections.emptyIterator();
+        private List<String> nextPath = advance();
+
+        @Override
+        public boolean hasNext() {
+            return nextPath != null;
+        }
+
+        @Override
+        public List<String> next() {
+            if (nextPath == null) {
+                throw new NoSuchElementException();
+            }
+            List<String> result = nextPath;
+            nextPath = advance();
+            return result;
+        }
+
+        private List<String> advance() {
+            if (forwardOnly != null && forwardOnly.hasNext()) {
+                return toWords(forwardOnly.next(), true, null);
+            }
+            if (backwardOnly != null && backwardOnly.hasNext()) {
+                return toWords(backwardOnly.next(), false, null);
+            }
+            while (true) {
+                if (suffixes.hasNext()) {
+                    return toWords(prefix, true, suffixes.next());
+                }
+                if (prefixes.hasNext()) {
+                    prefix = prefixes.next();
+                    suffixes = backwardPaths(splitEdges[splitIndex + 1]);
+                    continue;
+                }
+                splitIndex += 2;
+                if (splitIndex >= splitEdges.length) {
+                    return null;
+                }
+                prefixes = forwardPaths(splitEdges[splitIndex]);
+            }
+        }
+
+        // 拼接路径；reversed 表示 nodes 是从后往前的顺序
+        private List<String> toWords(int[] nodes, boolean reversed, int[] suffix) {
+            List<String> path = new ArrayList<>(nodes.length + (suffix == null ? 0 : suffix.length));
+            for (int k = 0; k < nodes.length; k++) {
+                path.add(graph.word(nodes[reversed ? nodes.length - 1 - k : k]));
+            }
+            if (suffix != null) {
+                for (int node : suffix) {
+                    path.add(graph.word(node));
+                }
+            }
+            return path;
+        }
+    }
+}
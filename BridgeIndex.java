@@ -0,0 +1,164 @@
+import java.util.*;
+
+/**
+ * 预先计算的桥接词索引：对每个起点 u，按终点 w 排序保存所有 u -> v -> w 的二跳组合，
+ * 查询 (u, w) 的桥接词只需在 u 的终点数组中二分查找，再返回一段连续的桥接词编号。
+ * 全部数据存放在基本类型数组中，条目总数约为 sum(入度 * 出度)，因此建立时需要给出上限。
+ */
+public class BridgeIndex {
+    private final CompactGraph graph;
+    private final int[] startOffsets; // 起点 u 的终点位于 [startOffsets[u], startOffsets[u+1])
+    private final int[] ends; // 终点编号，每个起点内升序
+    private final int[] bridgeOffsets; // 第 k 个 (u, w) 组合的桥接词位于 [bridgeOffsets[k], bridgeOffsets[k+1])
+    private final int[] bridges; // 桥接词编号，每个组合内升序
+
+    private BridgeIndex(CompactGraph graph, int[] startOffsets, int[] ends, int[] bridgeOffsets, int[] bridges) {
+        this.graph = graph;
+        this.startOffsets = startOffsets;
+        this.ends = ends;
+        this.bridgeOffsets = bridgeOffsets;
+        this.bridges = bridges;
+    }
+
+    // 该索引对应的紧凑图
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * 建立桥接词索引；条目总数超过 maxEntries（至多按 Integer.MAX_VALUE - 1 计）时放弃并返回 null。
+     */
+    public static BridgeIndex build(CompactGraph graph, long maxEntries) {
+        int n = graph.size();
+        // 条目数组以 int 为下标，bridgeOffsets 还要多一个元素，上限不能超过 Integer.MAX_VALUE - 1
+        long limit = Math.min(maxEntries, Integer.MAX_VALUE - 1);
+        // 先统计条目总数，避免在超出上限的图上分配大数组
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            total += (long) graph.inDegree(v) * graph.outDegree(v);
+            if (total > limit) {
+                return null;
+            }
+        }
+
+        int[] startOffsets = new int[n + 1];
+        int[] bridges = new int[(int) total];
+        int[] bridgeOffsets = new int[(int) total + 1];
+        int[] ends = new int[(int) total];
+        int pairCount = 0;
+        int bridgeCount = 0;
+        long[] entries = new long[16];
+        for (int u = 0; u < n; u++) {
+            // 收集 u -> v -> w 的所有组合，按 (w, v) 排序；v 不能是 u 自身
+            int size = 0;
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                int v = graph.target(e);
+                if (v == u) {
+                    continue;
+                }
+                int degree = graph.outDegree(v);
+                if (size + degree > entries.length) {
+                    entries = Arrays.copyOf(entries, Math.max(entries.length * 2, size + degree));
+                }
+                for (int f = graph.outStart(v); f < graph.outEnd(v); f++) {
+                    entries[size++] = ((long) graph.target(f) << 32) | v;
+                }
+            }
+            Arrays.sort(entries, 0, size);
+            int lastEnd = -1;
+            for (int k = 0; k < size; k++) {
+                int w = (int) (entries[k] >>> 32);
+                if (w != lastEnd) {
+                    bridgeOffsets[pairCount] = bridgeCount;
+                    ends[pairCount++] = w;
+                    lastEnd = w;
+                }
+                bridges[bridgeCount++] = (int) entries[k];
+            }
+            startOffsets[u + 1] = pairCount;
+        }
+        bridgeOffsets[pairCount] = bridgeCount;
+        return new BridgeIndex(graph, startOffsets, Arrays.copyOf(ends, pairCount),
+                Arrays.copyOf(bridgeOffsets, pairCount + 1), Arrays.copyOf(bridges, bridgeCount));
+    }
+
+    // 返回 start 到 end 的桥接词，结果直接引用索引中的数组，不做复制
+    public BridgeWordSet bridgeWords(int start, int end) {
+        int k = Arrays.binarySearch(ends, startOffsets[start], startOffsets[start + 1], end);
+        if (k < 0) {
+            return BridgeWordSet.EMPTY;
+        }
+        return new BridgeWordSet(graph, bridges, bridgeOffsets[k], bridgeOffsets[k + 1]);
+    }
+
+    /**
+     * 不使用索引时的查询：桥接词即 out(start) 与 in(end) 的交集（不含 start 自身）。
+     * 两个数组都按节点编号有序，遍历较短的一侧并在较长的一侧中向前二分查找，代价为 O(min * log max)。
+     */
+    public static BridgeWordSet intersect(CompactGraph graph, int start, int end) {
+        int outFrom = graph.outStart(start);
+        int outTo = graph.outEnd(start);
+        int inFrom = graph.inStart(end);
+        int inTo = graph.inEnd(end);
+        if (outFrom == outTo || inFrom == inTo) {
+            return BridgeWordSet.EMPTY;
+        }
+        boolean outIsSmaller = outTo - outFrom <= inTo - inFrom;
+        int[] found = null;
+        int count = 0;
+        int low = outIsSmaller ? inFrom : outFrom;
+        int high = outIsSmaller ? inTo : outTo;
+        for (int i = outIsSmaller ? outFrom : inFrom; i < (outIsSmaller ? outTo : inTo) && low < high; i++) {
+            int node = outIsSmaller ? graph.target(i) : graph.source(i);
+            int position = outIsSmaller ? searchSources(graph, low, high, node) : searchTargets(graph, low, high, node);
+            if (position >= 0) {
+                low = position + 1;
+                if (node != start) {
+                    if (found == null) {
+                        found = new int[Math.min(outTo - outFrom, inTo - inFrom)];
+                    }
+                    found[count++] = node;
+                }
+            } else {
+                low = -position - 1;
+            }
+        }
+        return count == 0 ? BridgeWordSet.EMPTY : new BridgeWordSet(graph, found, 0, count);
+    }
+
+    // 在入边区间 [from, to) 中二分查找来源节点，找不到时返回 -(插入位置) - 1
+    private static int searchSources(CompactGraph graph, int from, int to, int node) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = graph.source(mid);
+            if (value < node) {
+                low = mid + 1;
+            } else if (value > node) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // 在出边区间 [from, to) 中二分查找目标节点，找不到时返回 -(插入位置) - 1
+    private static int searchTargets(CompactGraph graph, int from, int to, int node) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = graph.target(mid);
+            if (value < node) {
+                low = mid + 1;
+            } else if (value > node) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.*;
+
+/**
+ * 只读的桥接词集合，直接引用一段按编号升序排列的节点编号数组，不复制也不能修改。
+ */
+final class BridgeWordSet extends AbstractSet<String> {
+    static final BridgeWordSet EMPTY = new BridgeWordSet(CompactGraph.EMPTY, new int[0], 0, 0);
+
+    private final CompactGraph graph;
+    private final int[] ids;
+    private final int from;
+    private final int to;
+
+    BridgeWordSet(CompactGraph graph, int[] ids, int from, int to) {
+        this.graph = graph;
+        this.ids = ids;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int id = graph.id((String) o);
+        return id >= 0 && Arrays.binarySearch(ids, from, to, id) >= 0;
+    }
+
+    // 第 index 个桥接词的编号
+    int idAt(int index) {
+        return ids[from + index];
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public String next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return graph.word(ids[next++]);
+            }
+        };
+    }
+}
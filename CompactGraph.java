@@ -0,0 +1,391 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 紧凑的只读有向图：每个单词对应一个稠密的整数编号，邻接表以 CSR 形式存放在基本类型数组中。
+ * 节点 u 的出边位于 [offsets[u], offsets[u+1]) 区间，区间内按目标编号升序排列，
+ * targets 保存目标节点编号，weights 保存对应的边权（单词相邻出现的次数）。
+ * 同时维护一份反向邻接表：节点 v 的入边位于 [inOffsets[v], inOffsets[v+1]) 区间，按来源编号升序排列。
+ * 单词编号表在 merge 得到的新旧紧凑图之间共享，只追加新单词；编号不小于节点数的单词对较旧的紧凑图不可见。
+ */
+public class CompactGraph {
+    public static final CompactGraph EMPTY = new CompactGraph(new String[0], new int[1], new int[0], new int[0]);
+
+    private final String[] words;
+    // 可能与之后 merge 得到的紧凑图共享，其中可能有编号不小于 words.length 的单词
+    private final Map<String, Integer> ids;
+    // 是否已有 merge 把新单词加入了共享的编号表；每个紧凑图的编号表最多被扩展一次，其余的 merge 复制一份
+    private final AtomicBoolean idsExtended = new AtomicBoolean(false);
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] inOffsets;
+    private final int[] sources;
+    private final int[] inWeights;
+    // 延迟计算的图指纹，0 表示尚未计算；冻结后多个线程会同时读取，volatile 保证 64 位读写不会被拆开
+    private volatile long fingerprint = 0;
+
+    CompactGraph(String[] words, int[] offsets, int[] targets, int[] weights) {
+        this.words = words;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.ids = idsOf(words, words.length);
+
+        // 按目标节点做一次计数排序得到反向邻接表，来源编号自然有序
+        int n = words.length;
+        inOffsets = new int[n + 1];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        sources = new int[targets.length];
+        inWeights = new int[targets.length];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int slot = next[targets[e]]++;
+                sources[slot] = u;
+                inWeights[slot] = weights[e];
+            }
+        }
+    }
+
+    private CompactGraph(String[] words, Map<String, Integer> ids, int[] offsets, int[] targets, int[] weights,
+                         int[] inOffsets, int[] sources, int[] inWeights) {
+        this.words = words;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.sources = sources;
+        this.inWeights = inWeights;
+    }
+
+    // 编号表会被之后的 merge 扩展，同时可能有其他线程在旧的紧凑图上查询，因此使用 ConcurrentHashMap
+    private static Map<String, Integer> idsOf(String[] words, int count) {
+        Map<String, Integer> ids = new ConcurrentHashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            ids.put(words[i], i);
+        }
+        return ids;
+    }
+
+    // 节点数
+    public int size() {
+        return words.length;
+    }
+
+    // 边数（不同的有序单词对数量）
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    // 返回单词的编号，不存在时返回 -1
+    public int id(String word) {
+        Integer id = ids.get(word);
+        return id == null || id >= words.length ? -1 : id;
+    }
+
+    public String word(int id) {
+        return words[id];
+    }
+
+    // 节点 u 第一条出边的下标
+    public int outStart(int u) {
+        return offsets[u];
+    }
+
+    // 节点 u 最后一条出边之后的下标
+    public int outEnd(int u) {
+        return offsets[u + 1];
+    }
+
+    public int outDegree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    // 第 e 条边的目标节点
+    public int target(int e) {
+        return targets[e];
+    }
+
+    // 第 e 条边的权值
+    public int weight(int e) {
+        return weights[e];
+    }
+
+    // 节点 v 第一条入边的下标
+    public int inStart(int v) {
+        return inOffsets[v];
+    }
+
+    // 节点 v 最后一条入边之后的下标
+    public int inEnd(int v) {
+        return inOffsets[v + 1];
+    }
+
+    public int inDegree(int v) {
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    // 第 e 条入边的来源节点
+    public int source(int e) {
+        return sources[e];
+    }
+
+    // 第 e 条入边的权值
+    public int inWeight(int e) {
+        return inWeights[e];
+    }
+
+    /**
+     * 根据全部单词和边计算的 64 位指纹，用于判断持久化到磁盘的派生数据是否仍与当前图一致。
+     */
+    public long fingerprint() {
+        long hash = fingerprint;
+        if (hash == 0) {
+            hash = 1125899906842597L;
+            for (String word : words) {
+                hash = 31 * hash + word.hashCode();
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                hash = 31 * hash + offsets[i];
+            }
+            for (int e = 0; e < targets.length; e++) {
+                hash = 31 * hash + ((long) targets[e] << 32 | weights[e]);
+            }
+            hash = hash == 0 ? 1 : hash;
+            fingerprint = hash;
+        }
+        return hash;
+    }
+
+    // 返回边 u -> v 的权值，不存在时返回 0
+    public int weight(int u, int v) {
+        int e = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return e >= 0 ? weights[e] : 0;
+    }
+
+    public boolean hasEdge(int u, int v) {
+        return Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v) >= 0;
+    }
+
+    /**
+     * 把尚未合并的新增节点和边合并进已有的紧凑图，返回新的紧凑图，base 本身保持不变。
+     * 已有单词保持原编号，新单词按在 pending 中作为键出现的顺序依次追加编号，只作为目标出现的单词排在最后。
+     * 只有新增边的来源所在的出边行和目标所在的入边行需要逐条归并，其余的行在新数组中整段复制；
+     * 编号表不重建，新单词直接加入 base 的编号表（base 的编号表已被扩展过时才复制一份）。
+     *
+     * @param base 已有的紧凑图
+     * @param pending 新增的邻接表，边权会累加到已有的边上
+     */
+    public static CompactGraph merge(CompactGraph base, Map<String, Map<String, Integer>> pending) {
+        // 为新单词分配编号：先按顺序为所有来源单词编号，再为只作为目标出现的单词编号，
+        // 这样按首次出现顺序加入的单词得到的编号与加入顺序一致，不受目标表内部顺序的影响
+        List<String> newWords = new ArrayList<>();
+        Map<String, Integer> newIds = new HashMap<>();
+        for (String source : pending.keySet()) {
+            assignId(base, source, newWords, newIds);
+        }
+        for (Map<String, Integer> edges : pending.values()) {
+            for (String destination : edges.keySet()) {
+                assignId(base, destination, newWords, newIds);
+            }
+        }
+        int baseSize = base.size();
+        if (newWords.isEmpty() && !hasEdges(pending)) {
+            return base; // 没有新节点也没有新边，图保持不变
+        }
+        int n = baseSize + newWords.size();
+        String[] words = Arrays.copyOf(base.words, n);
+        for (int i = 0; i < newWords.size(); i++) {
+            words[baseSize + i] = newWords.get(i);
+        }
+        // 空图的编号表是共享的单例，不扩展
+        Map<String, Integer> ids = baseSize > 0 && base.idsExtended.compareAndSet(false, true)
+                ? base.ids : idsOf(words, baseSize);
+        for (int i = 0; i < newWords.size(); i++) {
+            ids.put(newWords.get(i), baseSize + i);
+        }
+
+        // 有新增边的来源按编号排序，每个来源的新增边打包为 (目标编号 << 32 | 权值) 并按目标编号排序
+        List<long[]> pendingRows = new ArrayList<>();
+        long[] order = new long[pending.size()];
+        int touchedCount = 0;
+        int addedCount = 0;
+        for (Map.Entry<String, Map<String, Integer>> entry : pending.entrySet()) {
+            Map<String, Integer> edges = entry.getValue();
+            if (edges.isEmpty()) {
+                continue;
+            }
+            long[] packed = new long[edges.size()];
+            int k = 0;
+            for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+                packed[k++] = ((long) idOf(base, edge.getKey(), newIds) << 32) | edge.getValue();
+            }
+            Arrays.sort(packed);
+            order[touchedCount++] = ((long) idOf(base, entry.getKey(), newIds) << 32) | pendingRows.size();
+            pendingRows.add(packed);
+            addedCount += packed.length;
+        }
+        Arrays.sort(order, 0, touchedCount);
+        int[] touched = new int[touchedCount];
+        long[][] rows = new long[touchedCount][];
+        for (int t = 0; t < touchedCount; t++) {
+            touched[t] = (int) (order[t] >>> 32);
+            rows[t] = pendingRows.get((int) order[t]);
+        }
+
+        // 出边：先算出合并后的行偏移，再整段复制没有新增边的行、逐条归并有新增边的行
+        int[] offsets = new int[n + 1];
+        int[] inAdded = new int[n + 1]; // 每个目标新增的入边条目数（包括只增加权值的已有边）
+        for (int u = 0, t = 0; u < n; u++) {
+            int degree = u < baseSize ? base.outDegree(u) : 0;
+            if (t < touchedCount && touched[t] == u) {
+                for (long entry : rows[t]) {
+                    int v = (int) (entry >>> 32);
+                    inAdded[v + 1]++;
+                    if (u >= baseSize || !base.hasEdge(u, v)) {
+                        degree++;
+                    }
+                }
+                t++;
+            }
+            offsets[u + 1] = offsets[u] + degree;
+        }
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        int copied = 0; // 之前的行都已写入新数组
+        for (int t = 0; t < touchedCount; t++) {
+            int u = touched[t];
+            copyRows(base.offsets, base.targets, base.weights, offsets, targets, weights, copied, Math.min(u, baseSize));
+            mergeRow(base.targets, base.weights, u < baseSize ? base.offsets[u] : 0, u < baseSize ? base.offsets[u + 1] : 0,
+                    rows[t], targets, weights, offsets[u]);
+            copied = u + 1;
+        }
+        copyRows(base.offsets, base.targets, base.weights, offsets, targets, weights, copied, baseSize);
+
+        // 入边：按目标编号做一次计数排序得到各目标新增的 (来源, 权值)，来源编号自然有序
+        for (int v = 0; v < n; v++) {
+            inAdded[v + 1] += inAdded[v];
+        }
+        long[] inEntries = new long[addedCount];
+        int[] next = Arrays.copyOf(inAdded, n);
+        for (int t = 0; t < touchedCount; t++) {
+            for (long entry : rows[t]) {
+                inEntries[next[(int) (entry >>> 32)]++] = ((long) touched[t] << 32) | (entry & 0xFFFFFFFFL);
+            }
+        }
+        int[] inOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int degree = v < baseSize ? base.inDegree(v) : 0;
+            for (int k = inAdded[v]; k < inAdded[v + 1]; k++) {
+                int u = (int) (inEntries[k] >>> 32);
+                if (u >= baseSize || !base.hasEdge(u, v)) {
+                    degree++;
+                }
+            }
+            inOffsets[v + 1] = inOffsets[v] + degree;
+        }
+        int[] sources = new int[inOffsets[n]];
+        int[] inWeights = new int[inOffsets[n]];
+        copied = 0;
+        for (int v = 0; v < n; v++) {
+            if (inAdded[v] == inAdded[v + 1]) {
+                continue;
+            }
+            copyRows(base.inOffsets, base.sources, base.inWeights, inOffsets, sources, inWeights, copied,
+                    Math.min(v, baseSize));
+            mergeRow(base.sources, base.inWeights, v < baseSize ? base.inOffsets[v] : 0,
+                    v < baseSize ? base.inOffsets[v + 1] : 0,
+                    Arrays.copyOfRange(inEntries, inAdded[v], inAdded[v + 1]), sources, inWeights, inOffsets[v]);
+            copied = v + 1;
+        }
+        copyRows(base.inOffsets, base.sources, base.inWeights, inOffsets, sources, inWeights, copied, baseSize);
+        return new CompactGraph(words, ids, offsets, targets, weights, inOffsets, sources, inWeights);
+    }
+
+    // 把旧数组中 [from, to) 这些行整段复制到新数组中对应的位置，这些行的长度不变
+    private static void copyRows(int[] oldOffsets, int[] oldNodes, int[] oldWeights, int[] newOffsets,
+                                 int[] newNodes, int[] newWeights, int from, int to) {
+        if (from < to) {
+            int length = oldOffsets[to] - oldOffsets[from];
+            System.arraycopy(oldNodes, oldOffsets[from], newNodes, newOffsets[from], length);
+            System.arraycopy(oldWeights, oldOffsets[from], newWeights, newOffsets[from], length);
+        }
+    }
+
+    // 把旧数组中 [from, to) 的一行与按编号排序的新增条目 (编号 << 32 | 权值) 有序归并，写到新数组的 out 处
+    private static void mergeRow(int[] oldNodes, int[] oldWeights, int from, int to, long[] added,
+                                 int[] newNodes, int[] newWeights, int out) {
+        int i = from;
+        int j = 0;
+        while (i < to || j < added.length) {
+            int node = j < added.length ? (int) (added[j] >>> 32) : 0;
+            if (j == added.length || (i < to && oldNodes[i] < node)) {
+                newNodes[out] = oldNodes[i];
+                newWeights[out++] = oldWeights[i++];
+            } else if (i == to || node < oldNodes[i]) {
+                newNodes[out] = node;
+                newWeights[out++] = (int) added[j++];
+            } else {
+                newNodes[out] = oldNodes[i];
+                newWeights[out++] = oldWeights[i++] + (int) added[j++];
+            }
+        }
+    }
+
+    /**
+     * 由按来源分桶的边条目构造紧凑图：来源 u 的条目位于 entries 的 [rowStarts[u], rowStarts[u+1]) 区间，
+     * 每个条目打包为 (目标编号 << 32 | 权值)。每行按目标排序，同一行中重复的目标合并为一条边并累加权值。
+     * entries 会被原地排序。
+     */
+    static CompactGraph fromRows(String[] words, int[] rowStarts, long[] entries) {
+        int n = words.length;
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[entries.length];
+        int[] weights = new int[entries.length];
+        int out = 0;
+        for (int u = 0; u < n; u++) {
+            Arrays.sort(entries, rowStarts[u], rowStarts[u + 1]);
+            for (int i = rowStarts[u]; i < rowStarts[u + 1]; i++) {
+                int target = (int) (entries[i] >>> 32);
+                int weight = (int) entries[i];
+                if (out > offsets[u] && targets[out - 1] == target) {
+                    weights[out - 1] += weight;
+                } else {
+                    targets[out] = target;
+                    weights[out++] = weight;
+                }
+            }
+            offsets[u + 1] = out;
+        }
+        return new CompactGraph(words, offsets, Arrays.copyOf(targets, out), Arrays.copyOf(weights, out));
+    }
+
+    private static boolean hasEdges(Map<String, Map<String, Integer>> pending) {
+        for (Map<String, Integer> edges : pending.values()) {
+            if (!edges.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assignId(CompactGraph base, String word, List<String> newWords, Map<String, Integer> newIds) {
+        if (base.id(word) < 0 && !newIds.containsKey(word)) {
+            newIds.put(word, base.size() + newWords.size());
+            newWords.add(word);
+        }
+    }
+
+    private static int idOf(CompactGraph base, String word, Map<String, Integer> newIds) {
+        int id = base.id(word);
+        return id >= 0 ? id : newIds.get(word);
+    }
+}
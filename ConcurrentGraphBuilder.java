@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 支持多个线程同时写入的图构建器：单词编号保存在 ConcurrentHashMap 中，
+ * 每条边以 (来源编号 << 32 | 目标编号) 为键对应一个 LongAdder 计数器，并发累加时计数精确且热点边不会互相阻塞。
+ * 全部写入完成后调用 seal() 生成普通的 TextToGraph；多个线程并发写入时单词编号的顺序取决于线程调度。
+ * 每次写入前在按线程分段的计数器上登记（不同线程落在不同的缓存行上，不争用同一个字），
+ * seal() 先设置 volatile 的封存标志，再等待所有分段归零。
+ * 每次 addNode / addEdge 调用都要登记一次，大量写入时最好通过 addText 按文本批量写入。
+ */
+public class ConcurrentGraphBuilder {
+    // 登记写入的分段数（2 的幂），每段间隔 PADDING 个 int，避免伪共享
+    private static final int STRIPES = 64;
+    private static final int PADDING = 16;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> words = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Map<Long, LongAdder> edges = new ConcurrentHashMap<>();
+    // 正在进行的写入数，按线程编号分段
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(STRIPES * PADDING);
+    private volatile boolean sealed = false;
+
+    public void addNode(String node) {
+        int stripe = enter();
+        try {
+            idOf(node);
+        } finally {
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    // 边 source -> destination 的计数加一，两个单词不存在时自动加入
+    public void addEdge(String source, String destination) {
+        int stripe = enter();
+        try {
+            increment(idOf(source), idOf(destination));
+        } finally {
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    /**
+     * 把一篇文本中相邻的单词两两连边，不同文本之间不连边。可以由多个线程对不同的文本同时调用。
+     * 切分规则与 TextToGraph.appendText 相同：文本以分隔符开头时不会像 buildDirectedGraph 那样先产生一个空词 ""。
+     *
+     * @return 本文的单词数
+     */
+    public long addText(Reader input) throws IOException {
+        int stripe = enter();
+        try {
+            WordTokenizer tokenizer = new WordTokenizer(input);
+            int previous = -1;
+            long count = 0;
+            String word;
+            while ((word = tokenizer.next()) != null) {
+                int current = idOf(word);
+                if (previous >= 0) {
+                    increment(previous, current);
+                }
+                previous = current;
+                count++;
+            }
+            return count;
+        } finally {
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    /**
+     * 封存构建器并生成 TextToGraph，之后对本构建器的写入都会抛出 IllegalStateException。
+     * 会等待正在进行的写入完成；边权超过 int 范围时抛出 ArithmeticException。
+     */
+    public TextToGraph seal() {
+        synchronized (this) {
+            checkWritable();
+            sealed = true;
+        }
+        // 写入方先登记再检查标志，这里先设置标志再检查登记，因此之后开始的写入都会看到封存标志
+        for (int i = 0; i < STRIPES; i++) {
+            while (inFlight.get(i * PADDING) != 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+
+        int n = nextId.get();
+        String[] dictionary = new String[n];
+        for (int id = 0; id < n; id++) {
+            dictionary[id] = words.get(id);
+        }
+        // 按来源分桶后交给 CompactGraph 排序
+        int[] rowStarts = new int[n + 1];
+        for (Long key : edges.keySet()) {
+            rowStarts[(int) (key >>> 32) + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            rowStarts[u + 1] += rowStarts[u];
+        }
+        long[] entries = new long[rowStarts[n]];
+        int[] next = Arrays.copyOf(rowStarts, n);
+        for (Map.Entry<Long, LongAdder> entry : edges.entrySet()) {
+            long key = entry.getKey();
+            int weight = Math.toIntExact(entry.getValue().sum());
+            entries[next[(int) (key >>> 32)]++] = (key << 32) | weight;
+        }
+        return new TextToGraph(CompactGraph.fromRows(dictionary, rowStarts, entries));
+    }
+
+    // 在当前线程的分段上登记一次写入并检查封存标志，返回分段下标
+    private int enter() {
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+        inFlight.incrementAndGet(stripe);
+        if (sealed) {
+            inFlight.decrementAndGet(stripe);
+            throw new IllegalStateException("构建器已封存，不能再修改");
+        }
+        return stripe;
+    }
+
+    private void checkWritable() {
+        if (sealed) {
+            throw new IllegalStateException("构建器已封存，不能再修改");
+        }
+    }
+
+    // 返回单词的编号，不存在时原子地分配新编号
+    private int idOf(String word) {
+        Integer id = ids.get(word);
+        if (id == null) {
+            id = ids.computeIfAbsent(word, key -> {
+                int assigned = nextId.getAndIncrement();
+                words.put(assigned, key);
+                return assigned;
+            });
+        }
+        return id;
+    }
+
+    private void increment(int source, int target) {
+        Long key = ((long) source << 32) | target;
+        // 先不加锁地查找，只有第一次出现的边才进入 computeIfAbsent
+        LongAdder counter = edges.get(key);
+        if (counter == null) {
+            counter = edges.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+}
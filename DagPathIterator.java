@@ -0,0 +1,84 @@
+import java.util.*;
+
+/**
+ * 在最短路径的前驱（或后继）关系构成的有向无环图上做深度优先枚举的迭代器。
+ * 从根节点出发沿 follow 认可的边前进，每到达一次终点就产生一条路径，
+ * 路径以节点编号数组表示，顺序为从根节点到终点。使用显式栈，不会因路径过长而栈溢出。
+ */
+abstract class DagPathIterator implements Iterator<int[]> {
+    private int[] nodes = new int[16];
+    private int[] cursors = new int[16]; // 每层下一条待检查的边
+    private int depth = 0;
+    private int[] nextPath;
+    private boolean started = false;
+    private final int root;
+
+    DagPathIterator(int root) {
+        this.root = root;
+    }
+
+    // 节点第一条候选边的下标
+    protected abstract int edgeStart(int node);
+
+    // 节点最后一条候选边之后的下标
+    protected abstract int edgeEnd(int node);
+
+    // 若第 e 条边属于有向无环图则返回它通向的节点，否则返回 -1
+    protected abstract int follow(int node, int e);
+
+    protected abstract boolean isTerminal(int node);
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            push(root);
+            nextPath = advance();
+        }
+        return nextPath != null;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int[] result = nextPath;
+        nextPath = advance();
+        return result;
+    }
+
+    private void push(int node) {
+        if (depth == nodes.length) {
+            nodes = Arrays.copyOf(nodes, depth * 2);
+            cursors = Arrays.copyOf(cursors, depth * 2);
+        }
+        nodes[depth] = node;
+        cursors[depth++] = edgeStart(node);
+    }
+
+    // 继续深度优先搜索，直到到达终点得到下一条完整路径
+    private int[] advance() {
+        while (depth > 0) {
+            int current = nodes[depth - 1];
+            if (isTerminal(current)) {
+                int[] path = Arrays.copyOf(nodes, depth);
+                depth--; // 回溯
+                return path;
+            }
+            int end = edgeEnd(current);
+            int e = cursors[depth - 1];
+            int next = -1;
+            while (e < end && (next = follow(current, e)) < 0) {
+                e++;
+            }
+            if (e < end) {
+                cursors[depth - 1] = e + 1;
+                push(next);
+            } else {
+                depth--; // 所有边都已遍历，回溯
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 全源最短距离索引：每个源点一行，按可达节点的多少选择较小的存放方式（压缩行）。
+ * 可达节点不到一半时只存放按目标编号升序排列的 (目标编号, 距离) 对，查询时二分查找；
+ * 否则存放 N 个 int 的完整一行，不可达为 ShortestPathTree.UNREACHABLE。因此文件大小不超过 N * N 个 int，
+ * 可达关系稀疏时与可达的单词对数成正比。
+ * 索引存放在磁盘文件中并通过内存映射访问，以后的运行可以直接加载而无需重新计算；
+ * 还原路径时把该行展开为 ShortestPathTree 的距离数组。
+ * 文件格式：32 字节文件头（魔数、版本、节点数、保留字段、图指纹、边数），随后是 N + 1 个 long 的行偏移
+ * （以 int 计，长度恰为 N 的行是完整一行，其余是 (目标, 距离) 对），最后按行存放各行的内容。
+ */
+public class DistanceIndex {
+    private static final int MAGIC = 0x54544449; // "TTDI"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final long SEGMENT_BYTES = 1L << 30; // 每段映射的最大字节数，超过 2GB 的文件分段映射
+    private static final long BLOCK_INTS = 1L << 22; // 建立索引时一批源点的压缩行在内存中最多占用的 int 数
+
+    private final CompactGraph graph;
+    private final int size;
+    // 第 u 行为条目区中第 offsets[u] 到 offsets[u + 1] - 1 个 int
+    private final long[] offsets;
+    // 第 u 行所在的映射段，以及各段第一个 int 的序号；段的边界总在行的边界上
+    private final int[] rowSegment;
+    private final long[] segmentStarts;
+    private final IntBuffer[] segments;
+
+    private DistanceIndex(CompactGraph graph, long[] offsets, int[] rowSegment, long[] segmentStarts,
+                          IntBuffer[] segments) {
+        this.graph = graph;
+        this.size = graph.size();
+        this.offsets = offsets;
+        this.rowSegment = rowSegment;
+        this.segmentStarts = segmentStarts;
+        this.segments = segments;
+    }
+
+    // 该索引对应的紧凑图
+    public CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * 对每个源点运行一次 Dijkstra 算法，把压缩后的各行写入 file 并返回映射好的索引。
+     * 源点分批并行计算，每批计算完成后按顺序写入文件，内存占用与批的大小有关而与 N * N 无关。
+     */
+    public static DistanceIndex build(CompactGraph graph, Path file) throws IOException {
+        int n = graph.size();
+        long[] offsets = new long[n + 1];
+        int blockRows = (int) Math.max(1, Math.min(Math.max(n, 1), BLOCK_INTS / Math.max(1, 2L * n)));
+        int[][] rows = new int[blockRows][];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = entriesStart(n);
+            for (int first = 0; first < n; first += blockRows) {
+                int base = first;
+                int count = Math.min(blockRows, n - first);
+                // 每个线程使用自己的 Dijkstra 工作区
+                IntStream.range(0, count).parallel().forEach(k ->
+                        rows[k] = compress(ShortestPathSearch.forCurrentThread().run(graph, base + k), n));
+                for (int k = 0; k < count; k++) {
+                    ByteBuffer bytes = ByteBuffer.allocate(rows[k].length * 4);
+                    bytes.asIntBuffer().put(rows[k]);
+                    position += writeFully(channel, bytes, position);
+                    offsets[first + k + 1] = offsets[first + k] + rows[k].length;
+                    rows[k] = null;
+                }
+            }
+
+            ByteBuffer header = ByteBuffer.allocate((int) entriesStart(n));
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(graph.fingerprint()).putLong(graph.edgeCount());
+            for (long offset : offsets) {
+                header.putLong(offset);
+            }
+            header.flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+            return map(graph, channel, offsets);
+        }
+    }
+
+    /**
+     * 加载之前保存的索引；文件不存在、格式不符或与当前图不一致时返回 null。
+     */
+    public static DistanceIndex load(CompactGraph graph, Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        int n = graph.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < entriesStart(n)) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate((int) entriesStart(n));
+            if (!readFully(channel, header)) {
+                return null;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != n) {
+                return null;
+            }
+            header.getInt();
+            if (header.getLong() != graph.fingerprint() || header.getLong() != graph.edgeCount()) {
+                return null;
+            }
+            long[] offsets = new long[n + 1];
+            for (int u = 0; u <= n; u++) {
+                offsets[u] = header.getLong();
+            }
+            if (offsets[0] != 0) {
+                return null;
+            }
+            for (int u = 0; u < n; u++) {
+                // 每行最多有 n 个 int
+                if (offsets[u + 1] < offsets[u] || offsets[u + 1] - offsets[u] > n) {
+                    return null;
+                }
+            }
+            if (channel.size() != entriesStart(n) + offsets[n] * 4) {
+                return null;
+            }
+            return map(graph, channel, offsets);
+        }
+    }
+
+    // 返回 source 到 target 的最短距离，不可达时返回 ShortestPathTree.UNREACHABLE
+    public int distance(int source, int target) {
+        IntBuffer segment = segments[rowSegment[source]];
+        int start = rowStart(source);
+        int length = rowLength(source);
+        if (length == size) {
+            return segment.get(start + target);
+        }
+        int low = 0;
+        int high = length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int candidate = segment.get(start + 2 * mid);
+            if (candidate < target) {
+                low = mid + 1;
+            } else if (candidate > target) {
+                high = mid - 1;
+            } else {
+                return segment.get(start + 2 * mid + 1);
+            }
+        }
+        return ShortestPathTree.UNREACHABLE;
+    }
+
+    // 把 source 所在的一行展开为距离数组，得到的最短路径树可以 O(1) 查询距离并沿前驱还原路径
+    public ShortestPathTree tree(int source) {
+        int[] distance = new int[size];
+        IntBuffer segment = segments[rowSegment[source]].duplicate();
+        int start = rowStart(source);
+        int length = rowLength(source);
+        if (length == size) {
+            segment.position(start);
+            segment.get(distance);
+        } else {
+            Arrays.fill(distance, ShortestPathTree.UNREACHABLE);
+            for (int k = start; k < start + length; k += 2) {
+                distance[segment.get(k)] = segment.get(k + 1);
+            }
+        }
+        return new ShortestPathTree(graph, source, distance);
+    }
+
+    // 第 u 行在所在映射段中的第一个 int 的序号
+    private int rowStart(int u) {
+        return (int) (offsets[u] - segmentStarts[rowSegment[u]]);
+    }
+
+    private int rowLength(int u) {
+        return (int) (offsets[u + 1] - offsets[u]);
+    }
+
+    private static long entriesStart(int n) {
+        return HEADER_BYTES + 8L * (n + 1);
+    }
+
+    // 可达节点不到一半时只保留 (目标, 距离) 对，其长度 2 * reachable 小于 n；否则保留完整的一行
+    private static int[] compress(int[] distance, int n) {
+        int reachable = 0;
+        for (int v = 0; v < n; v++) {
+            if (distance[v] != ShortestPathTree.UNREACHABLE) {
+                reachable++;
+            }
+        }
+        if (2L * reachable >= n) {
+            return Arrays.copyOf(distance, n);
+        }
+        int[] row = new int[2 * reachable];
+        int k = 0;
+        for (int v = 0; v < n; v++) {
+            if (distance[v] != ShortestPathTree.UNREACHABLE) {
+                row[k++] = v;
+                row[k++] = distance[v];
+            }
+        }
+        return row;
+    }
+
+    // 按行的边界把各行的内容分段映射，每段不超过 SEGMENT_BYTES（单独一行超过时该行自成一段）
+    private static DistanceIndex map(CompactGraph graph, FileChannel channel, long[] offsets) throws IOException {
+        int n = offsets.length - 1;
+        int[] rowSegment = new int[n];
+        long[] starts = new long[n + 1];
+        int segmentCount = 0;
+        for (int u = 0; u < n; u++) {
+            if (segmentCount == 0 || (offsets[u] > starts[segmentCount - 1]
+                    && (offsets[u + 1] - starts[segmentCount - 1]) * 4 > SEGMENT_BYTES)) {
+                starts[segmentCount++] = offsets[u];
+            }
+            rowSegment[u] = segmentCount - 1;
+        }
+        long[] segmentStarts = Arrays.copyOf(starts, segmentCount);
+        IntBuffer[] segments = new IntBuffer[segmentCount];
+        for (int k = 0; k < segmentCount; k++) {
+            long end = k + 1 < segmentCount ? segmentStarts[k + 1] : offsets[n];
+            segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, entriesStart(n) + segmentStarts[k] * 4,
+                    (end - segmentStarts[k]) * 4).asIntBuffer();
+        }
+        return new DistanceIndex(graph, offsets, rowSegment, segmentStarts, segments);
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
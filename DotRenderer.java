@@ -0,0 +1,10 @@
+import java.io.IOException;
+
+/**
+ * 把 DOT 文件转换为图像的渲染器，默认实现为调用 Graphviz 的 GraphvizRenderer，测试时可以替换为桩实现。
+ * 实现需要允许多个线程同时调用。
+ */
+public interface DotRenderer {
+    // 渲染失败时抛出 IOException
+    void render(String dotFilePath, String imageFilePath) throws IOException, InterruptedException;
+}
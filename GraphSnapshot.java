@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 紧凑图的二进制快照，加载时无需重新切分文本。
+ * 文件格式：40 字节文件头（魔数、版本、节点数、边数、数据区字节数、数据区 CRC32、图指纹），
+ * 随后的数据区依次为 offsets[n+1]、targets[E]、weights[E]、单词的字节偏移 wordOffsets[n+1] 以及所有单词的 UTF-8 字节。
+ * 整数均为大端序。加载时按段映射文件并批量读取数组；文件头不在校验和范围内，因此分配数组之前先按数据区大小检查长度，
+ * 校验和通过后再检查数组之间的一致性，文件损坏或截断时总是抛出 IOException。
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x54544753; // "TTGS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int WINDOW_BYTES = 1 << 30; // 每次映射的最大字节数
+
+    private GraphSnapshot() {
+    }
+
+    public static void save(CompactGraph graph, Path file) throws IOException {
+        int n = graph.size();
+        int edges = graph.edgeCount();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel, HEADER_BYTES);
+            for (int u = 0; u <= n; u++) {
+                out.putInt(u < n ? graph.outStart(u) : graph.edgeCount());
+            }
+            for (int e = 0; e < edges; e++) {
+                out.putInt(graph.target(e));
+            }
+            for (int e = 0; e < edges; e++) {
+                out.putInt(graph.weight(e));
+            }
+            byte[][] words = new byte[n][];
+            int wordOffset = 0;
+            out.putInt(0);
+            for (int u = 0; u < n; u++) {
+                words[u] = graph.word(u).getBytes(StandardCharsets.UTF_8);
+                wordOffset += words[u].length;
+                out.putInt(wordOffset);
+            }
+            for (byte[] word : words) {
+                out.put(word);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(edges)
+                    .putLong(out.written).putLong(out.crc.getValue()).putLong(graph.fingerprint());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * 加载快照。代价仍为 O(V + E)，但只是按段映射后的批量复制和一遍线性处理，不再切分文本、不再逐条合并边：
+     * 数组从映射中整块读入堆内（查询的热点路径直接按下标访问 int[]，改为经由 IntBuffer 访问会拖慢每一次查询），
+     * 单词按字节偏移解码后建立编号表，反向邻接表由构造方法按目标做一次计数排序得到。
+     * 反向邻接表没有存入文件：读入后同样需要 O(E) 地检查它与正向邻接表一致，并不比重新计算便宜。
+     */
+    public static CompactGraph load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("快照文件不完整: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("不是图快照文件: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的快照版本: " + version);
+            }
+            int n = header.getInt();
+            int edges = header.getInt();
+            long payloadBytes = header.getLong();
+            long checksum = header.getLong();
+            long fingerprint = header.getLong();
+            if (n < 0 || edges < 0 || channel.size() != HEADER_BYTES + payloadBytes) {
+                throw new IOException("快照文件大小不符: " + file);
+            }
+
+            Input in = new Input(channel, HEADER_BYTES, payloadBytes);
+            int[] offsets = in.ints(n + 1);
+            int[] targets = in.ints(edges);
+            int[] weights = in.ints(edges);
+            int[] wordOffsets = in.ints(n + 1);
+            byte[] wordBytes = in.bytes(wordOffsets[n]);
+            if (in.crc.getValue() != checksum || in.position != HEADER_BYTES + payloadBytes) {
+                throw new IOException("快照文件校验失败: " + file);
+            }
+            if (!isConsistent(offsets, targets, wordOffsets)) {
+                throw new IOException("快照文件数据损坏: " + file);
+            }
+            String[] words = new String[n];
+            for (int u = 0; u < n; u++) {
+                words[u] = new String(wordBytes, wordOffsets[u], wordOffsets[u + 1] - wordOffsets[u], StandardCharsets.UTF_8);
+            }
+            CompactGraph graph = new CompactGraph(words, offsets, targets, weights);
+            if (graph.fingerprint() != fingerprint) {
+                throw new IOException("快照文件校验失败: " + file);
+            }
+            return graph;
+        }
+    }
+
+    // 行偏移与单词偏移单调不减且首尾正确、边的目标都在范围内，才能安全地构造紧凑图
+    private static boolean isConsistent(int[] offsets, int[] targets, int[] wordOffsets) {
+        int n = offsets.length - 1;
+        if (offsets[0] != 0 || offsets[n] != targets.length || wordOffsets[0] != 0) {
+            return false;
+        }
+        for (int u = 0; u < n; u++) {
+            if (offsets[u + 1] < offsets[u] || wordOffsets[u + 1] < wordOffsets[u]) {
+                return false;
+            }
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= n) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 经过缓冲写入文件并同时计算校验和
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private final CRC32 crc = new CRC32();
+        private long position;
+        private long written = 0;
+
+        Output(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            ByteBuffer checked = buffer.duplicate();
+            crc.update(checked);
+            while (buffer.hasRemaining()) {
+                int count = channel.write(buffer, position);
+                position += count;
+                written += count;
+            }
+            buffer.clear();
+        }
+    }
+
+    // 按窗口映射文件并批量读取数组，同时计算校验和
+    private static final class Input {
+        private final FileChannel channel;
+        private final long end;
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        Input(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        private MappedByteBuffer map(long bytes) throws IOException {
+            if (position + bytes > end) {
+                throw new IOException("快照文件数据不完整");
+            }
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+            crc.update(window.duplicate());
+            position += bytes;
+            return window;
+        }
+
+        int[] ints(int count) throws IOException {
+            if (count < 0 || position + 4L * count > end) {
+                throw new IOException("快照文件数据损坏");
+            }
+            int[] values = new int[count];
+            int done = 0;
+            while (done < count) {
+                int length = Math.min(count - done, WINDOW_BYTES / 4);
+                IntBuffer window = map(4L * length).asIntBuffer();
+                window.get(values, done, length);
+                done += length;
+            }
+            return values;
+        }
+
+        byte[] bytes(int count) throws IOException {
+            if (count < 0 || position + count > end) {
+                throw new IOException("快照文件数据损坏");
+            }
+            byte[] values = new byte[count];
+            int done = 0;
+            while (done < count) {
+                int length = Math.min(count - done, WINDOW_BYTES);
+                map(length).get(values, done, length);
+                done += length;
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 调用外部的 Graphviz dot 命令生成 PNG 图像。
+ */
+public class GraphvizRenderer implements DotRenderer {
+    @Override
+    public void render(String dotFilePath, String imageFilePath) throws IOException, InterruptedException {
+        // 创建目录确保可以写入文件
+        File imageFile = new File(imageFilePath);
+        if (imageFile.getParentFile() != null) {
+            if (!imageFile.getParentFile().mkdirs() && !imageFile.getParentFile().exists()) {
+                System.err.println("警告：无法创建图像目录：" + imageFile.getParentFile().getPath());
+            }
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder("dot", "-Tpng", dotFilePath, "-o", imageFilePath);
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        Process process = processBuilder.start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Graphviz 执行失败，退出码 " + exitCode + ": " + dotFilePath);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 多线程的图加载器：把文件分段映射到内存，在单词边界处切分成若干字节区间并行切分单词，
+ * 每个区间统计自己的局部词典和边计数表，最后按区间顺序合并（包括跨越区间边界的那条边）。
+ * 单词只由 ASCII 字母组成，而 UTF-8 多字节字符的每个字节都不小于 0x80，
+ * 因此直接在字节上切分与 WordTokenizer 在解码后的字符上切分结果完全相同；
+ * 单词编号按首次出现的顺序分配，得到的紧凑图与顺序构建的结果一致。
+ */
+final class ParallelGraphLoader {
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 30; // 单次映射的上限
+
+    // 加载结果：按首次出现顺序去重的单词、单词总数、最后一个单词以及紧凑图
+    static final class Result {
+        final String[] words;
+        final long tokenCount;
+        final String lastWord;
+        final CompactGraph graph;
+
+        Result(String[] words, long tokenCount, String lastWord, CompactGraph graph) {
+            this.words = words;
+            this.tokenCount = tokenCount;
+            this.lastWord = lastWord;
+            this.graph = graph;
+        }
+    }
+
+    private ParallelGraphLoader() {
+    }
+
+    static Result load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size);
+            int chunkCount = bounds.length - 1;
+            Chunk[] chunks = new Chunk[chunkCount];
+            IOException[] failure = new IOException[1];
+            IntStream.range(0, chunkCount).parallel().forEach(k -> {
+                try {
+                    chunks[k] = tokenize(channel, bounds[k], bounds[k + 1]);
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            boolean leadingGap = size > 0 && !isLetter(readByte(channel, 0));
+            return merge(chunks, leadingGap);
+        }
+    }
+
+    // 计算各区间的起止位置，区间边界不会落在单词中间
+    private static long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        int parallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        long chunkCount = Math.max(1, Math.min(size / MIN_CHUNK_BYTES, parallelism * 4L));
+        chunkCount = Math.max(chunkCount, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        for (long k = 1; k < chunkCount; k++) {
+            long position = Math.max(size * k / chunkCount, bounds.get(bounds.size() - 1));
+            // 向后移动到单词之间
+            while (position > 0 && position < size && isLetter(readByte(channel, position - 1))
+                    && isLetter(readByte(channel, position))) {
+                position++;
+            }
+            if (position > bounds.get(bounds.size() - 1) && position < size) {
+                bounds.add(position);
+            }
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        while (one.hasRemaining()) {
+            if (channel.read(one, position) < 0) {
+                throw new IOException("读取文件时意外结束");
+            }
+        }
+        return one.get(0);
+    }
+
+    private static boolean isLetter(byte b) {
+        return WordTokenizer.isWordChar(b);
+    }
+
+    // 一个区间的切分结果：局部词典（按首次出现顺序）、局部边计数表以及首尾单词
+    private static final class Chunk {
+        final List<String> words = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+        final EdgeCounts edges = new EdgeCounts();
+        long tokenCount = 0;
+        int first = -1;
+        int last = -1;
+
+        int idOf(String word) {
+            Integer id = ids.get(word);
+            if (id == null) {
+                id = words.size();
+                ids.put(word, id);
+                words.add(word);
+            }
+            return id;
+        }
+    }
+
+    private static Chunk tokenize(FileChannel channel, long start, long end) throws IOException {
+        Chunk chunk = new Chunk();
+        if (start == end) {
+            return chunk;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int length = (int) (end - start);
+        byte[] word = new byte[64];
+        int wordLength = 0;
+        int previous = -1;
+        for (int i = 0; i <= length; i++) {
+            byte b = i < length ? buffer.get(i) : (byte) ' ';
+            if (isLetter(b)) {
+                if (wordLength == word.length) {
+                    word = Arrays.copyOf(word, wordLength * 2);
+                }
+                word[wordLength++] = (byte) WordTokenizer.toLower(b);
+            } else if (wordLength > 0) {
+                int current = chunk.idOf(new String(word, 0, wordLength, StandardCharsets.ISO_8859_1));
+                wordLength = 0;
+                if (previous >= 0) {
+                    chunk.edges.increment(previous, current);
+                } else {
+                    chunk.first = current;
+                }
+                previous = current;
+                chunk.tokenCount++;
+            }
+        }
+        chunk.last = previous;
+        return chunk;
+    }
+
+    // 按区间顺序分配全局编号并合并各区间的边，最后按来源分桶生成 CSR
+    private static Result merge(Chunk[] chunks, boolean leadingGap) {
+        long tokenCount = 0;
+        for (Chunk chunk : chunks) {
+            tokenCount += chunk.tokenCount;
+        }
+        Map<String, Integer> globalIds = new HashMap<>();
+        List<String> globalWords = new ArrayList<>();
+        // 与 split 的行为一致：以分隔符开头的文本在第一个单词前有一个空词
+        int empty = -1;
+        if (leadingGap && tokenCount > 0) {
+            empty = 0;
+            globalIds.put("", 0);
+            globalWords.add("");
+            tokenCount++;
+        }
+        int[][] mapping = new int[chunks.length][];
+        for (int k = 0; k < chunks.length; k++) {
+            Chunk chunk = chunks[k];
+            mapping[k] = new int[chunk.words.size()];
+            for (int i = 0; i < chunk.words.size(); i++) {
+                String word = chunk.words.get(i);
+                Integer id = globalIds.get(word);
+                if (id == null) {
+                    id = globalWords.size();
+                    globalIds.put(word, id);
+                    globalWords.add(word);
+                }
+                mapping[k][i] = id;
+            }
+        }
+        String[] words = globalWords.toArray(new String[0]);
+        String lastWord = null;
+        for (int k = chunks.length - 1; k >= 0 && lastWord == null; k--) {
+            if (chunks[k].tokenCount > 0) {
+                lastWord = chunks[k].words.get(chunks[k].last);
+            }
+        }
+        if (tokenCount < 2) {
+            // 不足两个单词时没有任何边，顺序构建也不会加入任何节点
+            return new Result(words, tokenCount, lastWord, CompactGraph.EMPTY);
+        }
+
+        // 区间之间的边：上一个非空区间的最后一个单词 -> 下一个非空区间的第一个单词
+        EdgeCounts boundary = new EdgeCounts();
+        int previous = empty;
+        for (int k = 0; k < chunks.length; k++) {
+            if (chunks[k].tokenCount == 0) {
+                continue;
+            }
+            if (previous >= 0) {
+                boundary.increment(previous, mapping[k][chunks[k].first]);
+            }
+            previous = mapping[k][chunks[k].last];
+        }
+
+        // 第一遍统计每个来源的条目数（不同区间中的同一条边稍后合并）
+        int n = words.length;
+        int[] rowCounts = new int[n + 1];
+        for (int k = 0; k < chunks.length; k++) {
+            EdgeCounts edges = chunks[k].edges;
+            for (int slot = 0; slot < edges.capacity(); slot++) {
+                if (edges.isUsed(slot)) {
+                    rowCounts[mapping[k][edges.source(slot)] + 1]++;
+                }
+            }
+        }
+        for (int slot = 0; slot < boundary.capacity(); slot++) {
+            if (boundary.isUsed(slot)) {
+                rowCounts[boundary.source(slot) + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            rowCounts[u + 1] += rowCounts[u];
+        }
+
+        // 第二遍按来源分桶，每个条目打包为 (目标 << 32 | 权值)
+        long[] entries = new long[rowCounts[n]];
+        int[] next = Arrays.copyOf(rowCounts, n);
+        for (int k = 0; k < chunks.length; k++) {
+            EdgeCounts edges = chunks[k].edges;
+            for (int slot = 0; slot < edges.capacity(); slot++) {
+                if (edges.isUsed(slot)) {
+                    int u = mapping[k][edges.source(slot)];
+                    entries[next[u]++] = ((long) mapping[k][edges.target(slot)] << 32) | edges.count(slot);
+                }
+            }
+        }
+        for (int slot = 0; slot < boundary.capacity(); slot++) {
+            if (boundary.isUsed(slot)) {
+                int u = boundary.source(slot);
+                entries[next[u]++] = ((long) boundary.target(slot) << 32) | boundary.count(slot);
+            }
+        }
+
+        // 每行按目标排序并累加不同区间中重复的边
+        return new Result(words, tokenCount, lastWord, CompactGraph.fromRows(words, rowCounts, entries));
+    }
+
+    /**
+     * 以 (来源, 目标) 为键的开放寻址计数表，键打包成一个 long，避免为每条边创建对象。
+     */
+    private static final class EdgeCounts {
+        private static final long FREE = -1L;
+        private long[] keys = newKeys(1 << 10);
+        private int[] counts = new int[1 << 10];
+        private int size = 0;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            return keys;
+        }
+
+        void increment(int source, int target) {
+            long key = ((long) source << 32) | (target & 0xffffffffL);
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == FREE) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    counts[slot] = 1;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot]++;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = newKeys(oldKeys.length * 2);
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (keys[slot] != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        boolean isUsed(int slot) {
+            return keys[slot] != FREE;
+        }
+
+        int source(int slot) {
+            return (int) (keys[slot] >>> 32);
+        }
+
+        int target(int slot) {
+            return (int) keys[slot];
+        }
+
+        int count(int slot) {
+            return counts[slot];
+        }
+    }
+}
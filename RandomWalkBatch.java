@@ -0,0 +1,224 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一批并发进行的随机游走，由 TextToGraph.randomWalks 创建。
+ * 每次游走使用独立的随机数流，可以单独取消；访问次数按线程分别计数（每个工作线程一个 long 数组），读取时再求和，
+ * 热点节点不会因为多个线程同时计数而产生争用。
+ * 分片文件中每次游走占一行，行内单词以空格分隔。游走开始时取得一个空闲的分片并独占它直到结束，
+ * 每走一步就写入该分片的缓冲区，内存占用与游走的步数无关；因此写文件时同时进行的游走数不超过分片数。
+ * 某个分片写入失败时该分片不再使用（其中可能留有写了一半的行），其余游走全部取消，整批以该 IOException 失败。
+ */
+public class RandomWalkBatch {
+    // 写入失败的分片不再放回空闲队列，放回的是这个标记，使等待分片的游走醒来后直接结束
+    private static final Writer BROKEN_SHARD = new CharArrayWriter(0);
+
+    private final CompactGraph graph;
+    private final int walkCount;
+    private final AtomicIntegerArray cancelled;
+    private final Queue<long[]> counters = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<long[]> localCounts;
+    private final LongAdder totalSteps = new LongAdder();
+    private final Writer[] shards;
+    // 当前没有游走在写的分片
+    private final BlockingQueue<Writer> freeShards;
+    private final ExecutorService pool;
+    private CompletableFuture<Void> done;
+
+    private RandomWalkBatch(CompactGraph graph, int walkCount, Writer[] shards) {
+        this.graph = graph;
+        this.walkCount = walkCount;
+        this.cancelled = new AtomicIntegerArray(walkCount);
+        this.shards = shards;
+        this.freeShards = new ArrayBlockingQueue<>(Math.max(1, shards.length), false, Arrays.asList(shards));
+        this.pool = Executors.newWorkStealingPool();
+        this.localCounts = ThreadLocal.withInitial(() -> {
+            long[] counts = new long[graph.size()];
+            counters.add(counts);
+            return counts;
+        });
+    }
+
+    static RandomWalkBatch start(CompactGraph graph, AliasSampler sampler, int walkCount, WalkOptions options,
+                                 SplittableRandom root, String outputPrefix, int shardCount) throws IOException {
+        if (walkCount < 0) {
+            throw new IllegalArgumentException("walkCount 不能为负数: " + walkCount);
+        }
+        Writer[] shards = new Writer[0];
+        if (outputPrefix != null) {
+            if (shardCount <= 0) {
+                throw new IllegalArgumentException("shardCount 必须为正数: " + shardCount);
+            }
+            shards = new Writer[shardCount];
+            try {
+                for (int k = 0; k < shardCount; k++) {
+                    shards[k] = new BufferedWriter(new OutputStreamWriter(
+                            new FileOutputStream(outputPrefix + "-" + k + ".txt"), "UTF-8"));
+                }
+            } catch (IOException e) {
+                IOException closeFailure = closeAll(shards);
+                if (closeFailure != null) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+        }
+        RandomWalkBatch batch = new RandomWalkBatch(graph, walkCount, shards);
+        // 按编号顺序 split 随机数流，游走的序列与线程调度无关
+        CompletableFuture<?>[] walks = new CompletableFuture<?>[walkCount];
+        for (int i = 0; i < walkCount; i++) {
+            int walk = i;
+            SplittableRandom random = root.split();
+            walks[i] = CompletableFuture.runAsync(() -> batch.runWalk(walk, sampler, options, random), batch.pool);
+        }
+        // 关闭分片时写出缓冲区的内容，失败同样使整批失败
+        batch.done = CompletableFuture.allOf(walks).handle((ignored, failure) -> {
+            batch.pool.shutdown();
+            IOException closeFailure = closeAll(batch.shards);
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                if (closeFailure != null) {
+                    cause.addSuppressed(closeFailure);
+                }
+                throw failure instanceof CompletionException ? (CompletionException) failure
+                        : new CompletionException(failure);
+            }
+            if (closeFailure != null) {
+                throw new UncheckedIOException(closeFailure);
+            }
+            return null;
+        });
+        return batch;
+    }
+
+    private void runWalk(int walk, AliasSampler sampler, WalkOptions options, SplittableRandom random) {
+        long[] counts = localCounts.get();
+        Writer shard = null;
+        boolean broken = false;
+        try {
+            if (shards.length > 0) {
+                shard = freeShards.take();
+                if (shard == BROKEN_SHARD) {
+                    return; // 已有分片写入失败，整批已被取消
+                }
+            }
+            Writer output = shard;
+            long steps = RandomWalker.walk(graph, sampler, options, random,
+                    () -> cancelled.get(walk) != 0 || options.stopCondition.getAsBoolean(), new RandomWalker.VertexSink() {
+                        private boolean first = true;
+
+                        @Override
+                        public void accept(int vertex) throws IOException {
+                            counts[vertex]++;
+                            if (output != null) {
+                                if (!first) {
+                                    output.write(' ');
+                                }
+                                output.write(graph.word(vertex));
+                                first = false;
+                            }
+                        }
+                    });
+            totalSteps.add(steps);
+            if (output != null && steps > 0) {
+                output.write(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            broken = true;
+            cancelAll();
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            // 等待分片时被中断，视为取消
+            Thread.currentThread().interrupt();
+        } finally {
+            if (shard != null) {
+                freeShards.add(broken ? BROKEN_SHARD : shard);
+            }
+        }
+    }
+
+    // 关闭所有 Writer，返回第一个失败（其余的作为被抑制的异常附在其上），全部成功时返回 null
+    private static IOException closeAll(Writer[] writers) {
+        IOException failure = null;
+        for (Writer writer : writers) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        return failure;
+    }
+
+    public int walkCount() {
+        return walkCount;
+    }
+
+    // 取消第 walk 次游走：尚未开始的不会再访问任何节点，正在进行的在下一步之前停止
+    public void cancel(int walk) {
+        cancelled.set(walk, 1);
+    }
+
+    public void cancelAll() {
+        for (int i = 0; i < walkCount; i++) {
+            cancelled.set(i, 1);
+        }
+    }
+
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    /**
+     * 等待所有游走结束并关闭分片文件；写入或关闭分片文件失败时抛出 IOException。
+     */
+    public void await() throws InterruptedException, IOException {
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // 已完成的游走访问的节点总数
+    public long totalSteps() {
+        return totalSteps.sum();
+    }
+
+    /**
+     * 各单词被访问的次数，只包含访问过的单词，按单词编号排列。
+     * 游走进行中调用时返回的是近似值，await 返回之后是准确值。
+     */
+    public Map<String, Long> visitCounts() {
+        long[] total = new long[graph.size()];
+        for (long[] counts : counters) {
+            for (int v = 0; v < total.length; v++) {
+                total[v] += counts[v];
+            }
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int v = 0; v < total.length; v++) {
+            if (total[v] > 0) {
+                result.put(graph.word(v), total[v]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 随机游走的核心循环，单次游走与批量并发游走共用。
+ * 后继节点直接从紧凑图的出边数组中按下标选取，每一步不分配任何对象；
+ * 加权模式下使用按节点缓存的别名表，采样同样是 O(1)。
+ */
+final class RandomWalker {
+    // 接收游走访问到的节点
+    interface VertexSink {
+        void accept(int vertex) throws IOException;
+    }
+
+    private RandomWalker() {
+    }
+
+    /**
+     * 按 options 从起点开始游走，每访问一个节点就交给 sink。
+     * 走到没有出边的节点、达到最大步数、stop 返回 true 或当前线程被中断时结束。
+     *
+     * @param sampler 加权模式使用的采样器，为 null 时等概率选择后继
+     * @return 访问的节点数
+     */
+    static long walk(CompactGraph graph, AliasSampler sampler, WalkOptions options, SplittableRandom random,
+                     BooleanSupplier stop, VertexSink sink) throws IOException {
+        if (graph.size() == 0) {
+            return 0;
+        }
+        int currentVertex = options.start != null ? graph.id(options.start) : random.nextInt(graph.size());
+        if (currentVertex < 0) {
+            return 0; // 起点不在图中
+        }
+        Thread thread = Thread.currentThread();
+        long steps = 0;
+        while (steps < options.maxSteps && !stop.getAsBoolean() && !thread.isInterrupted()) {
+            sink.accept(currentVertex);
+            steps++;
+            int degree = graph.outDegree(currentVertex);
+            if (degree == 0) {
+                break; // 当前节点没有出边，结束随机游走
+            }
+            currentVertex = sampler != null
+                    ? sampler.next(currentVertex, random)
+                    : graph.target(graph.outStart(currentVertex) + random.nextInt(degree));
+            if (options.stepDelayMillis > 0) {
+                try {
+                    Thread.sleep(options.stepDelayMillis);
+                } catch (InterruptedException e) {
+                    thread.interrupt();
+                    break;
+                }
+            }
+        }
+        return steps;
+    }
+}
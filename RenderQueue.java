@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步渲染队列：在有限的工作线程中写出 DOT 文件并调用渲染器生成图像，提交方不必等待外部进程。
+ * 同一个图像文件的渲染在开始之前再次提交时会合并为一次（以最后一次提交为准）；
+ * 写出的 DOT 文件与该图像上一次成功渲染时的内容（按写出时计算的摘要比较）相同时跳过渲染器。
+ * 等待中的不同图像数量有上限，队列已满时 submit 阻塞到有任务开始执行为止，已提交的渲染不会被放弃；
+ * 合并到等待中任务的提交不占用名额，不会阻塞。提交方始终不会自己执行渲染；
+ * 同一个图像文件的渲染总是依次进行，不会有两个线程同时写同一个文件。
+ */
+public class RenderQueue implements AutoCloseable {
+    // 记录渲染摘要的图像文件数上限，超出后淘汰最久未使用的记录
+    private static final int MAX_TRACKED_IMAGES = 1024;
+    // 保证同一图像依次渲染的分段锁数，必须为 2 的幂
+    private static final int LOCK_STRIPES = 64;
+
+    private final DotRenderer renderer;
+    private final ThreadPoolExecutor executor;
+    // 等待中任务的名额，任务开始执行或被拒绝时归还
+    private final Semaphore slots;
+    private final Object lock = new Object();
+    // 尚未开始执行的任务，按图像文件路径索引
+    private final Map<String, Job> queued = new HashMap<>();
+    // 每个图像文件最近一次成功渲染时 DOT 文件的摘要
+    private final Map<String, byte[]> rendered = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_TRACKED_IMAGES;
+        }
+    };
+    private final Object[] imageLocks = new Object[LOCK_STRIPES];
+
+    public RenderQueue(DotRenderer renderer, int workers, int capacity) {
+        if (workers < 1 || capacity < 1) {
+            throw new IllegalArgumentException("工作线程数和队列容量必须为正数");
+        }
+        this.renderer = renderer;
+        this.slots = new Semaphore(capacity);
+        for (int i = 0; i < imageLocks.length; i++) {
+            imageLocks[i] = new Object();
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "dot-render-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, RenderQueue::reject);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // 任务队列没有上限（由 slots 限制），只有关闭之后才会拒绝任务
+    private static void reject(Runnable runnable, ThreadPoolExecutor pool) {
+        ((Job) runnable).reject("渲染队列已关闭");
+    }
+
+    // 生成 DOT 文件内容的回调，在工作线程中执行；返回写出内容的 SHA-256 摘要，由写出的一方在写出时计算
+    public interface DotWriter {
+        byte[] write(String dotFilePath) throws IOException;
+    }
+
+    // 新建计算 DOT 文件摘要的 SHA-256
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // 每个 Java 平台都必须支持 SHA-256
+        }
+    }
+
+    /**
+     * 提交一次渲染：在工作线程中调用 writer 写出 DOT 文件，再交给渲染器生成图像。
+     * 同一图像还没开始执行的渲染会被合并；否则在等待中的任务已达上限时阻塞，直到有任务开始执行。
+     *
+     * @return 渲染结束时完成的 future，值为 false 表示 DOT 内容未变而跳过；渲染失败时以异常结束，
+     *         队列已关闭时以 RejectedExecutionException 结束，等待名额时被中断则以 InterruptedException 结束
+     *         （并保留中断标志）
+     */
+    public CompletableFuture<Boolean> submit(String dotFilePath, String imageFilePath, DotWriter writer) {
+        boolean acquired = false;
+        while (true) {
+            synchronized (lock) {
+                Job job = queued.get(imageFilePath);
+                if (job != null) {
+                    // 前一次提交还没开始执行，直接换成新的内容
+                    job.dotFilePath = dotFilePath;
+                    job.writer = writer;
+                    if (acquired) {
+                        slots.release();
+                    }
+                    return job.result;
+                }
+                if (acquired || slots.tryAcquire()) {
+                    job = new Job(imageFilePath, dotFilePath, writer);
+                    queued.put(imageFilePath, job);
+                    executor.execute(job);
+                    return job.result;
+                }
+            }
+            // 等待名额时不持有 lock，工作线程才能取出任务并归还名额；之后重新检查能否合并
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+                interrupted.completeExceptionally(e);
+                return interrupted;
+            }
+            acquired = true;
+        }
+    }
+
+    /**
+     * 不再接受新的渲染，并等待已提交的渲染全部完成。
+     * 等待期间被中断时立即返回并保留中断标志，剩余的渲染继续在后台进行。
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Job implements Runnable {
+        final String imageFilePath;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // 以下字段在开始执行前可能被合并的提交替换，由 lock 保护
+        String dotFilePath;
+        DotWriter writer;
+
+        Job(String imageFilePath, String dotFilePath, DotWriter writer) {
+            this.imageFilePath = imageFilePath;
+            this.dotFilePath = dotFilePath;
+            this.writer = writer;
+        }
+
+        void reject(String reason) {
+            synchronized (lock) {
+                queued.remove(imageFilePath, this);
+            }
+            slots.release();
+            result.completeExceptionally(new RejectedExecutionException(reason + ": " + imageFilePath));
+        }
+
+        @Override
+        public void run() {
+            String dot;
+            DotWriter currentWriter;
+            synchronized (lock) {
+                queued.remove(imageFilePath, this);
+                dot = dotFilePath;
+                currentWriter = writer;
+            }
+            slots.release();
+            synchronized (imageLocks[imageFilePath.hashCode() & (LOCK_STRIPES - 1)]) {
+                try {
+                    byte[] digest = currentWriter.write(dot);
+                    synchronized (lock) {
+                        if (Arrays.equals(rendered.get(imageFilePath), digest)) {
+                            result.complete(false);
+                            return;
+                        }
+                        // 渲染期间图像内容未知，失败时不能再跳过
+                        rendered.remove(imageFilePath);
+                    }
+                    renderer.render(dot, imageFilePath);
+                    synchronized (lock) {
+                        rendered.put(imageFilePath, digest);
+                    }
+                    result.complete(true);
+                } catch (IOException e) {
+                    result.completeExceptionally(new UncheckedIOException(e));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(e);
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.Arrays;
+
+/**
+ * 每个线程复用的 Dijkstra 工作区：距离数组、带位置索引的二叉堆（支持 decrease-key）以及统计路径条数用的缓冲区。
+ * 每次搜索只重置上一次真正访问过的节点，因此重复查询不会再按图的规模分配或清空内存。
+ * 搜索返回的距离数组在同一线程的下一次搜索之前有效。
+ * 除了一次性跑完的 run 之外，还提供逐个确定节点的接口，供提前终止的点对点搜索和双向搜索使用。
+ */
+public class ShortestPathSearch {
+    private static final ThreadLocal<ShortestPathSearch> SCRATCH = ThreadLocal.withInitial(ShortestPathSearch::new);
+    // 双向搜索中反向搜索使用的第二个工作区
+    private static final ThreadLocal<ShortestPathSearch> REVERSE_SCRATCH = ThreadLocal.withInitial(ShortestPathSearch::new);
+    private static final int SETTLED = -2;
+
+    private CompactGraph graph;
+    private boolean reverse; // 为 true 时沿入边搜索，求的是各节点到 source 的距离
+    private int[] distance = new int[0];
+    private int[] heapIndex = new int[0]; // 节点在堆中的位置，不在堆中时为 -1，已确定最短距离时为 SETTLED
+    private int[] heap = new int[0];
+    private int heapSize = 0;
+    private int[] touched = new int[0]; // 本次搜索中距离被赋值过的节点
+    private int touchedCount = 0;
+    private int[] settledOrder = new int[0]; // 按确定顺序（即距离非递减）排列的节点
+    private int settledCount = 0;
+
+    private long[] counts = new long[0];
+    private int[] countMarks = new int[0];
+    private int countGeneration = 0;
+
+    // 返回当前线程的工作区
+    public static ShortestPathSearch forCurrentThread() {
+        return SCRATCH.get();
+    }
+
+    // 返回当前线程用于反向搜索的工作区
+    public static ShortestPathSearch reverseForCurrentThread() {
+        return REVERSE_SCRATCH.get();
+    }
+
+    /**
+     * 从 source 出发计算到所有节点的最短距离，不可达的节点距离为 ShortestPathTree.UNREACHABLE。
+     * 返回的数组属于工作区，长度可能大于节点数。
+     */
+    public int[] run(CompactGraph graph, int source) {
+        return run(graph, source, -1);
+    }
+
+    /**
+     * 点对点模式：target 的最短距离一经确定就停止搜索。
+     * 此时只有距离小于等于 target 的已确定节点的距离是最终值，但这已足以还原到 target 的所有最短路径：
+     * 任何最短路径上的前驱距离都严格更小，而尚未确定的节点不可能满足 dist[u] + w == dist[target]。
+     */
+    public int[] run(CompactGraph graph, int source, int target) {
+        start(graph, source, false);
+        while (!isEmpty()) {
+            if (settleNext() == target) {
+                break;
+            }
+        }
+        return distance;
+    }
+
+    // 开始一次新的搜索，reverse 为 true 时沿入边搜索
+    void start(CompactGraph graph, int source, boolean reverse) {
+        prepare(graph.size());
+        this.graph = graph;
+        this.reverse = reverse;
+        setDistance(source, 0);
+        push(source);
+    }
+
+    boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    // 堆中尚未确定的节点数
+    int frontierSize() {
+        return heapSize;
+    }
+
+    // 堆顶节点的距离，即下一个将被确定的距离
+    int peekDistance() {
+        return distance[heap[0]];
+    }
+
+    // 确定堆顶节点的最短距离并松弛它的边，返回该节点
+    int settleNext() {
+        int current = pop();
+        heapIndex[current] = SETTLED;
+        settledOrder[settledCount++] = current;
+        int currentDistance = distance[current];
+        int end = reverse ? graph.inEnd(current) : graph.outEnd(current);
+        for (int e = reverse ? graph.inStart(current) : graph.outStart(current); e < end; e++) {
+            int next = reverse ? graph.source(e) : graph.target(e);
+            int newDistance = currentDistance + (reverse ? graph.inWeight(e) : graph.weight(e));
+            if (newDistance < distance[next]) {
+                if (distance[next] == ShortestPathTree.UNREACHABLE) {
+                    setDistance(next, newDistance);
+                    push(next);
+                } else {
+                    distance[next] = newDistance;
+                    siftUp(heapIndex[next]);
+                }
+            }
+        }
+        return current;
+    }
+
+    boolean isSettled(int node) {
+        return heapIndex[node] == SETTLED;
+    }
+
+    // 节点当前的距离（未确定时为暂定值，未访问时为 UNREACHABLE）
+    int distance(int node) {
+        return distance[node];
+    }
+
+    int settledCount() {
+        return settledCount;
+    }
+
+    // 第 k 个被确定的节点
+    int settled(int k) {
+        return settledOrder[k];
+    }
+
+    // 开始一次路径条数统计，返回可复用的计数数组
+    long[] beginCount(int n) {
+        if (counts.length < n) {
+            counts = new long[n];
+            countMarks = new int[n];
+            countGeneration = 0;
+        }
+        if (countGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(countMarks, 0);
+            countGeneration = 0;
+        }
+        countGeneration++;
+        return counts;
+    }
+
+    boolean isCounted(int node) {
+        return countMarks[node] == countGeneration;
+    }
+
+    void markCounted(int node) {
+        countMarks[node] = countGeneration;
+    }
+
+    // 扩容并清除上一次搜索留下的状态
+    private void prepare(int n) {
+        for (int k = 0; k < touchedCount; k++) {
+            distance[touched[k]] = ShortestPathTree.UNREACHABLE;
+            heapIndex[touched[k]] = -1;
+        }
+        touchedCount = 0;
+        settledCount = 0;
+        heapSize = 0;
+        if (distance.length < n) {
+            distance = new int[n];
+            Arrays.fill(distance, ShortestPathTree.UNREACHABLE);
+            heapIndex = new int[n];
+            Arrays.fill(heapIndex, -1);
+            heap = new int[n];
+            touched = new int[n];
+            settledOrder = new int[n];
+        }
+    }
+
+    private void setDistance(int node, int value) {
+        distance[node] = value;
+        touched[touchedCount++] = node;
+    }
+
+    private void push(int node) {
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int position) {
+        int node = heap[position];
+        int key = distance[node];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentNode = heap[parent];
+            if (distance[parentNode] <= key) {
+                break;
+            }
+            heap[position] = parentNode;
+            heapIndex[parentNode] = position;
+            position = parent;
+        }
+        heap[position] = node;
+        heapIndex[node] = position;
+    }
+
+    private void siftDown(int position) {
+        int node = heap[position];
+        int key = distance[node];
+        int half = heapSize >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < heapSize && distance[heap[right]] < distance[heap[child]]) {
+                child = right;
+            }
+            int childNode = heap[child];
+            if (key <= distance[childNode]) {
+                break;
+            }
+            heap[position] = childNode;
+            heapIndex[childNode] = position;
+            position = child;
+        }
+        heap[position] = node;
+        heapIndex[node] = position;
+    }
+}
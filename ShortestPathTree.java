@@ -0,0 +1,176 @@
+import java.util.*;
+
+/**
+ * 单源最短路径树：保存从源点出发到每个节点的最短距离。
+ * 最短路径的前驱关系不单独存储，而是通过反向邻接表按 dist[u] + w(u, v) == dist[v] 即时判断，
+ * 因此一次 Dijkstra 的结果可以回答到任意目标节点的所有等长最短路径查询。
+ * 距离数组可能直接引用 ShortestPathSearch 的工作区，此时只在同一线程下一次搜索之前有效；
+ * 也可能是从 DistanceIndex 的一行展开得到的数组。
+ */
+public class ShortestPathTree {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final CompactGraph graph;
+    private final int source;
+    private final int[] distance;
+
+    ShortestPathTree(CompactGraph graph, int source, int[] distance) {
+        this.graph = graph;
+        this.source = source;
+        this.distance = distance;
+    }
+
+    public String source() {
+        return graph.word(source);
+    }
+
+    // 返回源点到目标单词的最短距离，不可达或不存在时返回 -1
+    public int distance(String target) {
+        int id = graph.id(target);
+        return id < 0 || distance[id] == UNREACHABLE ? -1 : distance[id];
+    }
+
+    public boolean isReachable(String target) {
+        return distance(target) >= 0;
+    }
+
+    /**
+     * 返回源点到目标单词的所有最短路径，每个元素为 [路径上的单词列表, 总权重]，
+     * 目标不存在或不可达时返回空列表。
+     */
+    public List<List<Object>> paths(String target) {
+        return paths(target, Integer.MAX_VALUE);
+    }
+
+    // 与 paths(target) 相同，但最多只构造 limit 条路径
+    public List<List<Object>> paths(String target, int limit) {
+        List<List<Object>> allPaths = new ArrayList<>();
+        int length = distance(target);
+        Iterator<List<String>> iterator = pathIterator(target);
+        while (allPaths.size() < limit && iterator.hasNext()) {
+            List<Object> resultPath = new ArrayList<>();
+            resultPath.add(iterator.next());
+            resultPath.add(length);
+            allPaths.add(resultPath);
+        }
+        return allPaths;
+    }
+
+    /**
+     * 按需逐条枚举源点到目标单词的最短路径，每次 next() 只沿前驱关系回溯出一条路径。
+     * 使用显式栈代替递归，路径再长也不会栈溢出。
+     */
+    public Iterator<List<String>> pathIterator(String target) {
+        int id = graph.id(target);
+        if (id < 0 || distance[id] == UNREACHABLE) {
+            return Collections.emptyIterator();
+        }
+        Iterator<int[]> backtrack = predecessorPaths(id);
+        return new Iterator<List<String>>() {
+            @Override
+            public boolean hasNext() {
+                return backtrack.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                // 回溯得到的顺序是从目标到源点，需要反转
+                int[] nodes = backtrack.next();
+                List<String> path = new ArrayList<>(nodes.length);
+                for (int k = nodes.length - 1; k >= 0; k--) {
+                    path.add(graph.word(nodes[k]));
+                }
+                return path;
+            }
+        };
+    }
+
+    // 从 node 沿前驱关系回溯到源点的所有路径，节点顺序为从 node 到源点
+    Iterator<int[]> predecessorPaths(int node) {
+        return new DagPathIterator(node) {
+            @Override
+            protected int edgeStart(int current) {
+                return graph.inStart(current);
+            }
+
+            @Override
+            protected int edgeEnd(int current) {
+                return graph.inEnd(current);
+            }
+
+            @Override
+            protected int follow(int current, int e) {
+                int predecessor = graph.source(e);
+                return isPredecessor(predecessor, graph.inWeight(e), current) ? predecessor : -1;
+            }
+
+            @Override
+            protected boolean isTerminal(int current) {
+                return current == source;
+            }
+        };
+    }
+
+    /**
+     * 统计源点到目标单词的最短路径条数而不构造路径，代价为 O(V + E)；
+     * 目标不可达时返回 0，条数超过 Long.MAX_VALUE 时返回 Long.MAX_VALUE。
+     */
+    public long countPaths(String target) {
+        int id = graph.id(target);
+        if (id < 0 || distance[id] == UNREACHABLE) {
+            return 0;
+        }
+        // 在前驱关系构成的有向无环图上做记忆化的后序遍历：count[v] = sum(count[u])，u 为 v 的前驱
+        ShortestPathSearch scratch = ShortestPathSearch.forCurrentThread();
+        long[] count = scratch.beginCount(graph.size());
+        int[] nodes = new int[16];
+        int[] cursors = new int[16];
+        int depth = 0;
+        nodes[depth] = id;
+        cursors[depth++] = graph.inStart(id);
+        while (depth > 0) {
+            int current = nodes[depth - 1];
+            if (current == source) {
+                count[current] = 1;
+                scratch.markCounted(current);
+                depth--;
+                continue;
+            }
+            int e = cursors[depth - 1];
+            if (e < graph.inEnd(current)) {
+                cursors[depth - 1] = e + 1;
+                int predecessor = graph.source(e);
+                if (isPredecessor(predecessor, graph.inWeight(e), current) && !scratch.isCounted(predecessor)) {
+                    if (depth == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, depth * 2);
+                        cursors = Arrays.copyOf(cursors, depth * 2);
+                    }
+                    nodes[depth] = predecessor;
+                    cursors[depth++] = graph.inStart(predecessor);
+                }
+                continue;
+            }
+            // 所有前驱都已计算完毕
+            long total = 0;
+            for (int k = graph.inStart(current); k < graph.inEnd(current); k++) {
+                int predecessor = graph.source(k);
+                if (isPredecessor(predecessor, graph.inWeight(k), current)) {
+                    total += count[predecessor];
+                    if (total < 0) {
+                        total = Long.MAX_VALUE;
+                        break;
+                    }
+                }
+            }
+            count[current] = total;
+            scratch.markCounted(current);
+            depth--;
+        }
+        return count[id];
+    }
+
+    // u 是否为 v 在某条最短路径上的前驱
+    boolean isPredecessor(int u, int weight, int v) {
+        return distance[u] != UNREACHABLE && distance[u] + weight == distance[v];
+    }
+}
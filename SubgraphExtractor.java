@@ -0,0 +1,140 @@
+import java.util.Arrays;
+
+/**
+ * 从紧凑图中取出用于绘制的子图：从若干起点出发沿出边和入边各走至多 hops 步，保留到达的节点之间的所有边。
+ * maxEdges 大于 0 时只保留权值最大的 maxEdges 条边（权值相同时优先保留离起点较近的节点发出的边），
+ * 但起点之间相邻的路径边 (required) 总会保留；此时只保留起点和剩余边的端点。
+ * 子图中的节点按原图编号的顺序重新编号，结果与原图一样是不可变的紧凑图。
+ */
+final class SubgraphExtractor {
+    private SubgraphExtractor() {
+    }
+
+    /**
+     * @param seeds    起点编号，可以重复
+     * @param required 必须保留的边，每条打包为 (来源 << 32 | 目标)，两端都应在 seeds 中
+     */
+    static CompactGraph extract(CompactGraph graph, int[] seeds, int hops, int maxEdges, long[] required) {
+        int n = graph.size();
+        // 按层广度优先搜索，depth 为 -1 表示未到达
+        int[] depth = new int[n];
+        Arrays.fill(depth, -1);
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int seed : seeds) {
+            if (seed >= 0 && seed < n && depth[seed] < 0) {
+                depth[seed] = 0;
+                queue[tail++] = seed;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            if (depth[u] == hops) {
+                continue;
+            }
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                tail = visit(graph.target(e), depth[u] + 1, depth, queue, tail);
+            }
+            for (int e = graph.inStart(u); e < graph.inEnd(u); e++) {
+                tail = visit(graph.source(e), depth[u] + 1, depth, queue, tail);
+            }
+        }
+
+        // 到达的节点之间的边及其来源
+        int[] edges = new int[16];
+        int[] sources = new int[16];
+        int edgeCount = 0;
+        for (int i = 0; i < tail; i++) {
+            int u = queue[i];
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                if (depth[graph.target(e)] >= 0) {
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edgeCount * 2);
+                        sources = Arrays.copyOf(sources, edgeCount * 2);
+                    }
+                    edges[edgeCount] = e;
+                    sources[edgeCount++] = u;
+                }
+            }
+        }
+        boolean capped = maxEdges > 0 && edgeCount > maxEdges;
+        if (capped) {
+            int[] selected = topEdges(graph, edges, sources, edgeCount, maxEdges, required);
+            edgeCount = selected.length;
+            for (int i = 0; i < edgeCount; i++) {
+                edges[i] = edges[selected[i]];
+                sources[i] = sources[selected[i]];
+            }
+        }
+
+        // 需要保留的节点：不限边数时为所有到达的节点，否则为起点和保留的边的端点
+        boolean[] kept = new boolean[n];
+        for (int i = 0; i < tail; i++) {
+            kept[queue[i]] = !capped || depth[queue[i]] == 0;
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            kept[sources[i]] = true;
+            kept[graph.target(edges[i])] = true;
+        }
+        int[] newIds = new int[n];
+        int size = 0;
+        for (int u = 0; u < n; u++) {
+            newIds[u] = kept[u] ? size++ : -1;
+        }
+        String[] words = new String[size];
+        for (int u = 0; u < n; u++) {
+            if (kept[u]) {
+                words[newIds[u]] = graph.word(u);
+            }
+        }
+        int[] rowStarts = new int[size + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            rowStarts[newIds[sources[i]] + 1]++;
+        }
+        for (int u = 0; u < size; u++) {
+            rowStarts[u + 1] += rowStarts[u];
+        }
+        long[] entries = new long[edgeCount];
+        int[] next = Arrays.copyOf(rowStarts, size);
+        for (int i = 0; i < edgeCount; i++) {
+            int e = edges[i];
+            entries[next[newIds[sources[i]]]++] = ((long) newIds[graph.target(e)] << 32) | graph.weight(e);
+        }
+        return CompactGraph.fromRows(words, rowStarts, entries);
+    }
+
+    private static int visit(int v, int d, int[] depth, int[] queue, int tail) {
+        if (depth[v] < 0) {
+            depth[v] = d;
+            queue[tail++] = v;
+        }
+        return tail;
+    }
+
+    // 先保留必需的边，再按权值从大到小补足 maxEdges 条，返回选中的候选下标（按下标升序）
+    private static int[] topEdges(CompactGraph graph, int[] edges, int[] sources, int edgeCount, int maxEdges,
+                                  long[] required) {
+        long[] requiredKeys = required.clone();
+        Arrays.sort(requiredKeys);
+        int[] result = new int[edgeCount];
+        int kept = 0;
+        // 其余候选打包为 (-权值 << 32 | 下标)，升序即为权值降序、下标升序
+        long[] ranked = new long[edgeCount];
+        int rankedCount = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            long key = ((long) sources[i] << 32) | graph.target(edges[i]);
+            if (Arrays.binarySearch(requiredKeys, key) >= 0) {
+                result[kept++] = i;
+            } else {
+                ranked[rankedCount++] = ((long) -graph.weight(edges[i]) << 32) | i;
+            }
+        }
+        Arrays.sort(ranked, 0, rankedCount);
+        for (int i = 0; i < rankedCount && kept < maxEdges; i++) {
+            result[kept++] = (int) ranked[i];
+        }
+        result = Arrays.copyOf(result, kept);
+        Arrays.sort(result);
+        return result;
+    }
+}
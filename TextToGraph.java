@@ -1,15 +1,75 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.security.SecureRandom; // 添加导入语句
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class TextToGraph {
-    private final Map<String, Map<String, Integer>> directedGraph;
+    // 累计多少条新边后在构建过程中提前合并一次，避免暂存的邻接表占用过多内存
+    private static final int COMPACT_THRESHOLD = 1 << 16;
+    // 并行计算PageRank时每个分块包含的工作量（节点数 + 入边数），分块与线程数无关，保证结果可复现
+    static final int PAGE_RANK_BLOCK_WORK = 1 << 14;
+    // 最短路径查询默认最多列出并绘制的路径条数
+    public static final int DEFAULT_PATH_LIMIT = 100;
+    // 流式生成新文本时每个分块的单词数
+    static final int GENERATE_CHUNK_WORDS = 1 << 13;
+    // 默认渲染队列的工作线程数和等待中的渲染数上限
+    private static final int RENDER_WORKERS = 2;
+    private static final int RENDER_QUEUE_CAPACITY = 64;
+
+    // 尚未合并进紧凑图的新增节点和边
+    private Map<String, Map<String, Integer>> pendingGraph;
+    private int pendingEdgeCount = 0;
+    // 查询使用的紧凑图（单词编号 + CSR 邻接表）
+    private volatile CompactGraph compactGraph = CompactGraph.EMPTY;
+    private volatile boolean dirty = false;
+    // 最近一次计算出的PageRank向量，只对计算时的那个紧凑图有效
+    private volatile PageRankCache pageRankCache = null;
+    // 加权随机游走使用的别名表缓存，只对创建时的那个紧凑图有效
+    private volatile AliasSampler aliasSampler = null;
+    // 可选的全源最短距离索引，只对建立时的那个紧凑图有效
+    private volatile DistanceIndex distanceIndex = null;
+    // 可选的桥接词索引，只对建立时的那个紧凑图有效
+    private volatile BridgeIndex bridgeIndex = null;
+    // 全图边的 DOT 序列化结果，只对生成时的那个紧凑图有效
+    private volatile DotBodyCache dotBodyCache = null;
+    // 为 true 时图变化后的PageRank从上一次的结果开始迭代
+    private volatile boolean pageRankWarmStart = false;
+    // 最近一次读入的文本的最后一个单词，追加文本时可以从它继续连边
+    private String lastWord = null;
+    // 冻结后图不再允许修改，所有查询都只读取不可变的紧凑图
+    private volatile boolean frozen = false;
+    // 异步生成图像的渲染队列，第一次需要时才创建；为 false 时不再生成 DOT 文件和图像
+    private volatile RenderQueue renderQueue = null;
+    private volatile boolean renderingEnabled = true;
+    // 绘制的范围：renderHops 小于 0 时绘制整个图，否则只绘制查询附近 renderHops 步内的子图，最多 renderMaxEdges 条边
+    private volatile int renderHops = -1;
+    private volatile int renderMaxEdges = 0;
     private volatile boolean stopWalk = false; // 使用volatile保证可见性
-    private final CountDownLatch latch = new CountDownLatch(1); // 用于协调线程
 
     public TextToGraph() {
-        directedGraph = new HashMap<>();
+        pendingGraph = new LinkedHashMap<>();
+    }
+
+    // 直接以构建好的紧凑图创建实例，供 ConcurrentGraphBuilder 使用
+    TextToGraph(CompactGraph graph) {
+        this();
+        compactGraph = graph;
     }
 
     public static void main(String[] args) {
@@ -218,10 +278,7 @@ public class TextToGraph {
                     if (wordss.length == 1) {
                         // 生成到所有节点的最短路径
                         String word11 = wordss[0].toLowerCase();
-                        int index = 0;
-                        for (String word22 : allwords) {
-                            graphBuilder.calcShortestPath(word11, word22, ++index,root);
-                        }
+                        graphBuilder.calcShortestPaths(word11, Arrays.asList(allwords), root);
                     } else if (wordss.length != 2) {
                         System.out.println("要求输入词语数量为2！");
                     } else {
@@ -241,34 +298,52 @@ public class TextToGraph {
 
                 case 5:
                     System.out.println("开始随机游走");
-                    Thread walkThread = new Thread(() -> {
-                        graphBuilder.randomWalk();
-                        graphBuilder.latch.countDown(); // 通知主线程
-                    });
-                    walkThread.start();
-
-                    System.out.println("输入任意键以停止随机游走：");
-                    try{
-                        while (walkThread.isAlive()) {
-                            if (System.in.available() > 0) {
-                                graphBuilder.stopWalk = true;
-                                break;
-                            }
-                        }
+                    String walkPath = "./random_walk.txt";
+                    WalkHandle walk;
+                    try {
+                        walk = graphBuilder.startRandomWalk(new WalkOptions().stepDelayMillis(500), walkPath);
                     } catch (IOException e) {
                         e.printStackTrace();
+                        break;
                     }
+                    // 游走自行结束与用户按回车停止只有一方会输出结果
+                    AtomicBoolean reported = new AtomicBoolean(false);
+                    walk.onComplete((steps, failure) -> {
+                        if (failure != null) {
+                            failure.printStackTrace();
+                        } else if (reported.compareAndSet(false, true)) {
+                            // 走到没有出边的节点，游走自行结束，仍需回车返回菜单
+                            System.out.println("随机游走的结果已写入文件：" + walkPath);
+                            System.out.println("按回车键返回菜单");
+                        }
+                    });
 
-                    try {
-                        walkThread.join();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
+                    // 阻塞读取标准输入，不再轮询；游走提前结束时同样等待回车
+                    System.out.println("按回车键停止随机游走：");
+                    if (scanner.hasNextLine()) {
+                        scanner.nextLine();
+                    }
+                    if (reported.compareAndSet(false, true)) {
+                        walk.cancel();
+                        try {
+                            walk.await();
+                            System.out.println("随机游走的结果已写入文件：" + walkPath);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (IOException ignored) {
+                            // 已在完成回调中输出
+                        }
                     }
                     break;
 
                 case 6:
                     System.out.println("退出程序");
                     scanner.close();
+                    // 等待尚未完成的图像渲染
+                    RenderQueue queue = graphBuilder.renderQueue;
+                    if (queue != null) {
+                        queue.close();
+                    }
                     return;
 
                 default:
@@ -279,21 +354,241 @@ public class TextToGraph {
 
     // 添加节点到有向图
     public void addNode(String node) {
-        directedGraph.putIfAbsent(node, new HashMap<>());
+        checkWritable();
+        pendingGraph.putIfAbsent(node, new HashMap<>());
+        dirty = true;
     }
 
     // 添加边到有向图
     public void addEdge(String source, String destination) {
-        directedGraph.get(source).merge(destination, 1, Integer::sum);
+        checkWritable();
+        // 查询会合并并清空暂存的邻接表，来源节点此时可能已经不在其中
+        if (pendingGraph.computeIfAbsent(source, k -> new HashMap<>()).merge(destination, 1, Integer::sum) == 1) {
+            pendingEdgeCount++;
+        }
+        dirty = true;
+    }
+
+    /**
+     * 冻结图：合并所有暂存的节点和边，此后 addNode、addEdge 以及构建、追加、加载图的方法都会抛出 IllegalStateException。
+     * 冻结后的紧凑图不可变并通过 volatile 字段发布，queryBridgeWords、最短路径、PageRank、generateNewText 等查询
+     * 可以被多个线程同时调用，读路径上不加锁（Dijkstra 工作区按线程分配，派生缓存以紧凑图为键原子替换）。
+     * 冻结前的修改应由调用者保证在同一线程中完成。
+     */
+    public TextToGraph freeze() {
+        synchronized (this) {
+            graph();
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkWritable() {
+        if (frozen) {
+            throw new IllegalStateException("图已冻结，不能再修改");
+        }
+    }
+
+    // 未指定种子时使用默认构造的 SplittableRandom，其种子来自无锁的全局种子序列
+    private static SplittableRandom newRandom(Long seed) {
+        return seed != null ? new SplittableRandom(seed) : new SplittableRandom();
+    }
+
+    // 返回合并了全部新增节点和边的紧凑图
+    CompactGraph graph() {
+        if (!dirty) {
+            return compactGraph;
+        }
+        synchronized (this) {
+            if (dirty) {
+                compactGraph = CompactGraph.merge(compactGraph, pendingGraph);
+                pendingGraph = new LinkedHashMap<>();
+                pendingEdgeCount = 0;
+                dirty = false;
+            }
+            return compactGraph;
+        }
     }
 
     // 构建有向图
+    // 逐字符流式读取文件，识别出一个单词就立即加入图中，内存中只保留上一个单词；
+    // 返回文件中出现过的所有单词（按首次出现顺序去重），第一个元素即为文本的第一个单词
     public String[] buildDirectedGraph(String filePath) throws IOException {
-        StringBuilder content = new StringBuilder();
-        boolean rootSet = false; // 标志是否已经设置根节点
-        String rootWord = null; // 根节点的单词
-        
-        // 安全检查
+        checkWritable();
+        File file = checkInputFile(filePath);
+
+        // 记录出现过的单词，同时复用同一个 String 实例
+        Map<String, String> vocabulary = new LinkedHashMap<>();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+            WordTokenizer tokenizer = new WordTokenizer(reader, true);
+            String previousWord = null;
+            String currentWord;
+            while ((currentWord = tokenizer.next()) != null) {
+                String known = vocabulary.putIfAbsent(currentWord, currentWord);
+                if (known != null) {
+                    currentWord = known;
+                }
+                if (previousWord != null) {
+                    addNode(previousWord);
+                    addNode(currentWord);
+                    addEdge(previousWord, currentWord);
+                }
+                previousWord = currentWord;
+                compactIfLarge();
+            }
+            if (previousWord != null) {
+                lastWord = previousWord;
+            }
+        }
+
+        // 空文件与原先 split 的结果保持一致
+        if (vocabulary.isEmpty() && file.length() == 0) {
+            return new String[]{""};
+        }
+        return vocabulary.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * 把一篇新文本追加到已有的图中。单词的切分规则与 buildDirectedGraph 相同，区别在于文本以分隔符开头时
+     * buildDirectedGraph 会先产生一个空词 ""（与 split 的行为一致），这里则不会。
+     * continuePrevious 为 true 时把上一次读入的文本的最后一个单词与本文的第一个单词连一条边，
+     * 否则两篇文本之间不连边。
+     * 新增的边先暂存，追加本身的代价与本文的长度成正比（暂存的边多于紧凑图中的边时会提前合并一次，均摊后仍然如此）；
+     * 之后的第一次查询用 CompactGraph.merge 合并：只逐条归并新增边所在的行，其余的行整段复制，编号表只加入新单词，
+     * 但数组仍需整体复制一次（O(V + E) 的内存复制），
+     * 并使 PageRank、桥接词索引、距离索引等与旧紧凑图绑定的派生数据失效、在之后的查询中按需重算。
+     * 因此连续追加多篇文本后再查询，只需合并一次。
+     *
+     * @return 本文的单词数
+     */
+    public long appendText(Reader input, boolean continuePrevious) throws IOException {
+        checkWritable();
+        WordTokenizer tokenizer = new WordTokenizer(input);
+        String previousWord = continuePrevious ? lastWord : null;
+        long count = 0;
+        String currentWord;
+        while ((currentWord = tokenizer.next()) != null) {
+            if (previousWord != null) {
+                addNode(previousWord);
+                addNode(currentWord);
+                addEdge(previousWord, currentWord);
+            }
+            previousWord = currentWord;
+            count++;
+            compactIfLarge();
+        }
+        if (count > 0) {
+            lastWord = previousWord;
+        }
+        return count;
+    }
+
+    // 追加一篇独立的文本，与上一篇文本之间不连边
+    public long appendText(Reader input) throws IOException {
+        return appendText(input, false);
+    }
+
+    // 追加一个 UTF-8 编码的文本文件，文件需通过与 buildDirectedGraph 相同的安全检查
+    public long appendFile(Path file, boolean continuePrevious) throws IOException {
+        File checked = checkInputFile(file.toString());
+        try (Reader reader = new InputStreamReader(new FileInputStream(checked), "UTF-8")) {
+            return appendText(reader, continuePrevious);
+        }
+    }
+
+    public long appendFile(Path file) throws IOException {
+        return appendFile(file, false);
+    }
+
+    // 暂存的边足够多时先合并，使构建过程的内存占用与紧凑图同一量级；向大图追加少量文本时不会触发
+    private void compactIfLarge() {
+        if (pendingEdgeCount > COMPACT_THRESHOLD && pendingEdgeCount > compactGraph.edgeCount()) {
+            graph();
+        }
+    }
+
+    /**
+     * 与 buildDirectedGraph(filePath) 相同，parallel 为 true 时使用内存映射并行加载，适合很大的语料文件；
+     * 得到的图、单词编号与返回值都与顺序构建完全相同。
+     */
+    public String[] buildDirectedGraph(String filePath, boolean parallel) throws IOException {
+        if (!parallel) {
+            return buildDirectedGraph(filePath);
+        }
+        checkWritable();
+        File file = checkInputFile(filePath);
+        ParallelGraphLoader.Result result = ParallelGraphLoader.load(file.toPath());
+        synchronized (this) {
+            checkWritable();
+            CompactGraph current = graph();
+            if (current.size() == 0) {
+                compactGraph = result.graph;
+            } else {
+                compactGraph = CompactGraph.merge(current, toPending(result.graph));
+            }
+            if (result.lastWord != null) {
+                lastWord = result.lastWord;
+            }
+        }
+
+        // 空文件与原先 split 的结果保持一致
+        if (result.words.length == 0 && file.length() == 0) {
+            return new String[]{""};
+        }
+        return result.words;
+    }
+
+    /**
+     * 把当前的图保存为二进制快照，之后可以用 load 直接恢复而无需重新读取文本。
+     */
+    public void save(Path file) throws IOException {
+        GraphSnapshot.save(graph(), file);
+    }
+
+    /**
+     * 从二进制快照恢复图，替换当前的图（尚未合并的新增节点和边一并丢弃），派生的缓存随之失效。
+     * 返回图中的全部单词（按编号顺序，即在原文中首次出现的顺序），图为空时返回 {""}。
+     */
+    public String[] load(Path file) throws IOException {
+        checkWritable();
+        CompactGraph loaded = GraphSnapshot.load(file);
+        synchronized (this) {
+            checkWritable();
+            pendingGraph = new LinkedHashMap<>();
+            pendingEdgeCount = 0;
+            compactGraph = loaded;
+            dirty = false;
+            lastWord = null;
+        }
+        if (loaded.size() == 0) {
+            return new String[]{""};
+        }
+        String[] words = new String[loaded.size()];
+        for (int u = 0; u < words.length; u++) {
+            words[u] = loaded.word(u);
+        }
+        return words;
+    }
+
+    // 把紧凑图转换为待合并的邻接表；所有单词都按编号顺序作为键出现，新单词的编号顺序因此与顺序构建一致
+    private static Map<String, Map<String, Integer>> toPending(CompactGraph graph) {
+        Map<String, Map<String, Integer>> pending = new LinkedHashMap<>();
+        for (int u = 0; u < graph.size(); u++) {
+            Map<String, Integer> edges = new HashMap<>();
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                edges.put(graph.word(graph.target(e)), graph.weight(e));
+            }
+            pending.put(graph.word(u), edges);
+        }
+        return pending;
+    }
+
+    // 安全检查：文件必须存在，且位于当前目录或 test 目录下
+    private static File checkInputFile(String filePath) throws IOException {
         // 安全检查
         File file = new File(filePath);
         if (!file.exists()) {
@@ -311,27 +606,7 @@ public class TextToGraph {
                 throw new SecurityException("安全限制：只能访问当前目录或test目录下的文件");
             }
         }
-        
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                content.append(line).append(" "); // 将每行内容添加到 content 中，并添加空格作为单词间的分隔符
-            }
-        }
-        // 将非字母字符替换为空格，并转换为小写
-        String processedContent = content.toString().replaceAll("[^a-zA-Z\\n\\r]", " ").toLowerCase();
-        String[] words = processedContent.split("\\s+"); // 按空格分割单词
-
-        for (int i = 0; i < words.length - 1; i++) {
-            String currentWord = words[i];
-            //System.out.println("currentWord: " + currentWord);
-            String nextWord = words[i + 1];
-            addNode(currentWord);
-            addNode(nextWord);
-            addEdge(currentWord, nextWord);
-        }
-
-        return words;
+        return file;
     }
 
     /**
@@ -341,102 +616,309 @@ public class TextToGraph {
      */
     // 修改createDotFile方法以支持多条最短路径的不同颜色显示
     public void createDotFile(String dotFilePath, List<List<Object>> shortestPaths, String root) {
-        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(dotFilePath), "UTF-8"))) {
-            writer.println("digraph G {");
-            writer.println("  rankdir=LR;");
-            writer.println("  node [shape=circle, style=filled, fillcolor=white];");
-            
-            // 标记根节点为红色
-            if (root != null && !root.isEmpty()) {
-                writer.println("  \"" + root + "\" [fillcolor=red];");
+        try {
+            writeGraphDotFile(graph(), dotFilePath, shortestPaths, root);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 写出全图的 DOT 文件，返回写出内容的 SHA-256 摘要。全图的边只序列化一次并缓存；
+    // 同一个文件上次写出的文件头和边未变、文件也未被外部修改时，只改写其后标记路径的部分，摘要从保存的前缀状态继续计算
+    private byte[] writeGraphDotFile(CompactGraph graph, String dotFilePath, List<List<Object>> shortestPaths,
+                                     String root) throws IOException {
+        DotBodyCache cache = dotBodyCache(graph);
+        byte[] head = dotHead(root);
+        ByteBuffer overlay = ByteBuffer.wrap(dotOverlay(shortestPaths));
+        Path file = Paths.get(dotFilePath);
+        DotFile state = cache.files.computeIfAbsent(dotFilePath, k -> new DotFile());
+        synchronized (state) {
+            byte[] writtenHead = state.head;
+            state.head = null; // 写出失败时文件内容未知，下次整体重写
+            byte[] result;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (Arrays.equals(writtenHead, head) && channel.size() == state.size
+                        && Files.getLastModifiedTime(file).equals(state.modified)) {
+                    channel.position(state.prefixLength);
+                } else {
+                    ByteBuffer[] prefix = {ByteBuffer.wrap(head), cache.body.duplicate()};
+                    state.prefix = RenderQueue.newDigest();
+                    for (ByteBuffer part : prefix) {
+                        state.prefix.update(part.duplicate());
+                    }
+                    channel.truncate(0);
+                    while (prefix[prefix.length - 1].hasRemaining()) {
+                        channel.write(prefix);
+                    }
+                    state.prefixLength = channel.position();
+                }
+                MessageDigest digest = copyOf(state.prefix);
+                digest.update(overlay.duplicate());
+                result = digest.digest();
+                while (overlay.hasRemaining()) {
+                    channel.write(overlay);
+                }
+                channel.truncate(channel.position());
+                state.size = channel.position();
             }
-            
-            // 写入所有边
-            for (Map.Entry<String, Map<String, Integer>> entry : directedGraph.entrySet()) {
-                String vertex = entry.getKey();
-                Map<String, Integer> edges = entry.getValue();
-                
-                for (Map.Entry<String, Integer> edge : edges.entrySet()) {
-                    String destination = edge.getKey();
-                    int weight = edge.getValue();
-                    writer.println("  \"" + vertex + "\" -> \"" + destination + "\" [label=\"" + weight + "\"];");
+            state.modified = Files.getLastModifiedTime(file);
+            state.head = head;
+            return result;
+        }
+    }
+
+    // 写出 DOT 文件，body 为所有边的 DOT 语句，与文件头和标记路径的部分一起写入；返回写出内容的 SHA-256 摘要，
+    // 摘要在写出的同时计算，不必再读一遍文件
+    private static byte[] writeDotFile(ByteBuffer body, String dotFilePath, List<List<Object>> shortestPaths,
+                                       String root) throws IOException {
+        ByteBuffer[] parts = {
+                ByteBuffer.wrap(dotHead(root)),
+                body,
+                ByteBuffer.wrap(dotOverlay(shortestPaths))
+        };
+        MessageDigest digest = RenderQueue.newDigest();
+        for (ByteBuffer part : parts) {
+            digest.update(part.duplicate());
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(dotFilePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (parts[parts.length - 1].hasRemaining()) {
+                channel.write(parts);
+            }
+        }
+        return digest.digest();
+    }
+
+    // DOT 文件头，标记根节点
+    private static byte[] dotHead(String root) {
+        String newline = System.lineSeparator();
+        StringBuilder head = new StringBuilder();
+        head.append("digraph G {").append(newline);
+        head.append("  rankdir=LR;").append(newline);
+        head.append("  node [shape=circle, style=filled, fillcolor=white];").append(newline);
+
+        // 标记根节点为红色
+        if (root != null && !root.isEmpty()) {
+            head.append("  \"").append(root).append("\" [fillcolor=red];").append(newline);
+        }
+        return head.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 标记最短路径的部分和 DOT 文件的结尾
+    private static byte[] dotOverlay(List<List<Object>> shortestPaths) {
+        String newline = System.lineSeparator();
+        // 为每条最短路径分配不同的颜色
+        String[] colors = {"blue", "green", "purple", "orange", "brown", "pink", "cyan", "magenta", "yellow", "gray"};
+        StringBuilder overlay = new StringBuilder();
+        if (shortestPaths != null && !shortestPaths.isEmpty()) {
+            for (int i = 0; i < shortestPaths.size(); i++) {
+                List<Object> pathInfo = shortestPaths.get(i);
+                List<String> path = (List<String>) pathInfo.get(0);
+                String color = colors[i % colors.length]; // 循环使用颜色
+
+                // 标记路径上的节点
+                for (String node : path) {
+                    overlay.append("  \"").append(node).append("\" [fillcolor=\"").append(color).append("20\"];") // 添加透明度
+                            .append(newline);
+                }
+
+                // 标记路径上的边
+                for (int j = 0; j < path.size() - 1; j++) {
+                    overlay.append("  \"").append(path.get(j)).append("\" -> \"").append(path.get(j + 1))
+                            .append("\" [color=\"").append(color).append("\", penwidth=2.0];").append(newline);
                 }
             }
-            
-            // 为每条最短路径分配不同的颜色
-            String[] colors = {"blue", "green", "purple", "orange", "brown", "pink", "cyan", "magenta", "yellow", "gray"};
-            
-            if (shortestPaths != null && !shortestPaths.isEmpty()) {
-                for (int i = 0; i < shortestPaths.size(); i++) {
-                    List<Object> pathInfo = shortestPaths.get(i);
-                    List<String> path = (List<String>) pathInfo.get(0);
-                    String color = colors[i % colors.length]; // 循环使用颜色
-                    
-                    // 标记路径上的节点
-                    for (String node : path) {
-                        writer.println("  \"" + node + "\" [fillcolor=\"" + color + "20\"];"); // 添加透明度
-                    }
-                    
-                    // 标记路径上的边
-                    for (int j = 0; j < path.size() - 1; j++) {
-                        writer.println("  \"" + path.get(j) + "\" -> \"" + path.get(j + 1) + 
-                                       "\" [color=\"" + color + "\", penwidth=2.0];");
+        }
+        overlay.append("}").append(newline);
+        return overlay.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 复制摘要的中间状态，Java 平台自带的 SHA-256 实现都支持复制
+    private static MessageDigest copyOf(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 返回全图所有边的 DOT 语句，图变化后重新生成；缓存中的缓冲区只能通过 duplicate 读取
+    private DotBodyCache dotBodyCache(CompactGraph graph) throws IOException {
+        DotBodyCache cache = dotBodyCache;
+        if (cache == null || cache.graph != graph) {
+            ByteBuffer edges = edgeStatements(graph);
+            ByteBuffer body = ByteBuffer.allocateDirect(edges.remaining());
+            body.put(edges).flip();
+            cache = new DotBodyCache(graph, body.asReadOnlyBuffer());
+            dotBodyCache = cache;
+        }
+        return cache;
+    }
+
+    private static ByteBuffer edgeStatements(CompactGraph graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            String newline = System.lineSeparator();
+            for (int u = 0; u < graph.size(); u++) {
+                String vertex = graph.word(u);
+                for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                    writer.write("  \"" + vertex + "\" -> \"" + graph.word(graph.target(e))
+                            + "\" [label=\"" + graph.weight(e) + "\"];" + newline);
+                }
+            }
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    // 取出查询附近需要绘制的子图：有最短路径时以路径上的节点为起点并保留路径边，否则以根节点为起点
+    private static CompactGraph renderSubgraph(CompactGraph graph, List<List<Object>> shortestPaths, String root,
+                                               int hops, int maxEdges) {
+        List<Integer> seeds = new ArrayList<>();
+        List<Long> required = new ArrayList<>();
+        if (shortestPaths != null && !shortestPaths.isEmpty()) {
+            for (List<Object> pathInfo : shortestPaths) {
+                // 第一个元素是单词列表，逐个转换单词即可，不需要未检查的 List<String> 转换
+                List<?> path = (List<?>) pathInfo.get(0);
+                int previous = -1;
+                for (Object word : path) {
+                    int v = graph.id((String) word);
+                    seeds.add(v);
+                    if (previous >= 0) {
+                        required.add(((long) previous << 32) | v);
                     }
+                    previous = v;
                 }
             }
-            
-            writer.println("}");
-        } catch (IOException e) {
-            e.printStackTrace();
+        } else if (root != null) {
+            seeds.add(graph.id(root));
+        }
+        int[] seedIds = new int[seeds.size()];
+        for (int i = 0; i < seedIds.length; i++) {
+            seedIds[i] = seeds.get(i);
         }
+        long[] requiredEdges = new long[required.size()];
+        for (int i = 0; i < requiredEdges.length; i++) {
+            requiredEdges[i] = required.get(i);
+        }
+        return SubgraphExtractor.extract(graph, seedIds, hops, maxEdges, requiredEdges);
     }
 
 
     public String[] showDirectedGraph(TextToGraph graphBuilder, String filePath, String dotFilePath, String imageFilePath) throws IOException {
         System.out.println("开始生成有向图");
         String[] words = graphBuilder.buildDirectedGraph(filePath); // 构建有向图
-        graphBuilder.createDotFile(dotFilePath,null,words[0]); // 生成 DOT 文件
-        convertDotToImage(dotFilePath, imageFilePath); // 将 DOT 文件转换为图像文件
+        graphBuilder.render(dotFilePath, imageFilePath, null, words[0]); // 在后台生成 DOT 文件并转换为图像文件
         return words;
     }
 
-    // 使用 Graphviz 将 DOT 文件转换为图像文件
-    public static void convertDotToImage(String dotFilePath, String imageFilePath) {
-        try {
-            // 创建目录确保可以写入文件
-            File imageFile = new File(imageFilePath);
-            if (imageFile.getParentFile() != null) {
-                if (!imageFile.getParentFile().mkdirs() && !imageFile.getParentFile().exists()) {
-                    System.err.println("警告：无法创建图像目录：" + imageFile.getParentFile().getPath());
+    /**
+     * 设置生成图像使用的渲染队列，例如换成使用其他 DotRenderer 的队列；原来的队列不会被关闭。
+     */
+    public void setRenderQueue(RenderQueue queue) {
+        renderQueue = queue;
+    }
+
+    /**
+     * 设置 showDirectedGraph 和最短路径查询绘制的范围。hops 小于 0 时绘制整个图（默认）；
+     * 否则只绘制根节点（或最短路径上的节点）沿出边和入边 hops 步之内的子图，
+     * maxEdges 大于 0 时子图最多保留权值最大的 maxEdges 条边，最短路径上的边总会保留。
+     * 大图上使用子图可以让 Graphviz 的耗时与语料的规模无关。
+     */
+    public void setRenderScope(int hops, int maxEdges) {
+        renderHops = hops;
+        renderMaxEdges = maxEdges;
+    }
+
+    /**
+     * 关闭后 showDirectedGraph 和最短路径查询不再生成 DOT 文件和图像，只计算并打印结果。
+     */
+    public void setRenderingEnabled(boolean enabled) {
+        renderingEnabled = enabled;
+    }
+
+    // 返回渲染队列，第一次调用时创建使用 Graphviz 的默认队列
+    private RenderQueue renderQueue() {
+        RenderQueue queue = renderQueue;
+        if (queue == null) {
+            synchronized (this) {
+                queue = renderQueue;
+                if (queue == null) {
+                    queue = new RenderQueue(new GraphvizRenderer(), RENDER_WORKERS, RENDER_QUEUE_CAPACITY);
+                    renderQueue = queue;
                 }
             }
-            
-            // 尝试使用 Graphviz
-            try {
-                ProcessBuilder processBuilder = new ProcessBuilder("dot", "-Tpng", dotFilePath, "-o", imageFilePath);
-                Process process = processBuilder.start();
-                int exitCode = process.waitFor();
-                if (exitCode == 0) {
-                    System.out.println("有向图生成成功: " + imageFilePath);
-                    return;
-                } else {
-                    System.out.println("Graphviz 执行失败，尝试使用备选方法...");
-                }
-            } catch (IOException e) {
-                System.out.println("找不到 Graphviz，请确保已安装并添加到系统路径中");
-                System.out.println("您可以从 https://graphviz.org/download/ 下载安装");
-                System.out.println("DOT 文件已生成: " + dotFilePath);
-                System.out.println("您可以手动使用 Graphviz 将其转换为图像");
+        }
+        return queue;
+    }
+
+    // 把当前的图提交到渲染队列，立即返回；同一图像的重复渲染由队列合并或跳过
+    private CompletableFuture<Boolean> render(String dotFilePath, String imageFilePath,
+                                              List<List<Object>> shortestPaths, String root) {
+        if (!renderingEnabled) {
+            return CompletableFuture.completedFuture(false);
+        }
+        CompactGraph graph = graph();
+        int hops = renderHops;
+        int maxEdges = renderMaxEdges;
+        CompletableFuture<Boolean> result = renderQueue().submit(dotFilePath, imageFilePath, path -> {
+                    if (hops < 0) {
+                        return writeGraphDotFile(graph, path, shortestPaths, root);
+                    } else {
+                        // 子图在渲染线程中提取，每次都不同，不进入缓存
+                        CompactGraph subgraph = renderSubgraph(graph, shortestPaths, root, hops, maxEdges);
+                        return writeDotFile(edgeStatements(subgraph), path, shortestPaths,
+                                root != null && subgraph.id(root) >= 0 ? root : null);
+                    }
+                });
+        result.whenComplete((rendered, failure) -> {
+            if (failure != null) {
+                reportRenderFailure(dotFilePath, failure instanceof CompletionException ? failure.getCause() : failure);
+            } else if (rendered) {
+                System.out.println("有向图生成成功: " + imageFilePath);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        });
+        return result;
+    }
+
+    // 渲染失败时提示用户可以手动转换 DOT 文件
+    private static void reportRenderFailure(String dotFilePath, Throwable failure) {
+        Throwable cause = failure instanceof UncheckedIOException ? failure.getCause() : failure;
+        if (cause instanceof RejectedExecutionException) {
+            System.out.println("跳过图像：" + cause.getMessage());
+        } else if (cause instanceof IOException) {
+            System.out.println("生成图像失败：" + cause.getMessage());
+            System.out.println("请确保已安装 Graphviz 并添加到系统路径中");
+            System.out.println("您可以从 https://graphviz.org/download/ 下载安装");
+            System.out.println("DOT 文件: " + dotFilePath);
+            System.out.println("您可以手动使用 Graphviz 将其转换为图像");
+        } else {
+            cause.printStackTrace();
+        }
+    }
+
+    // 使用 Graphviz 将 DOT 文件转换为图像文件
+    // 同步执行，会等待 dot 进程结束；查询中使用的是异步的渲染队列
+    public static void convertDotToImage(String dotFilePath, String imageFilePath) {
+        try {
+            new GraphvizRenderer().render(dotFilePath, imageFilePath);
+            System.out.println("有向图生成成功: " + imageFilePath);
+        } catch (IOException e) {
+            reportRenderFailure(dotFilePath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     public String generateNewText(String inputText) {
+        return generateNewText(inputText, true);
+    }
+
+    // 按空格切分输入并插入桥接词，print 为 false 时不打印到标准输出
+    public String generateNewText(String inputText, boolean print) {
         StringBuilder newText = new StringBuilder();
         String[] words = inputText.split(" ");
-        SecureRandom secureRandom = new SecureRandom(); // 使用SecureRandom替代Random
+        SplittableRandom random = newRandom(null);
+        CompactGraph graph = graph();
 
         for (int i = 0; i < words.length - 1; i++) {
             String currentWord = words[i];
@@ -445,53 +927,178 @@ public class TextToGraph {
             // 将当前单词添加到新文本中
             newText.append(currentWord).append(" ");
 
-            // 查询当前单词和下一个单词之间的桥接词
-            Set<String> bridgeWords = queryBridgeWords(currentWord, nextWord, false);
-            if (bridgeWords != null && !bridgeWords.isEmpty()) {
-                // 如果存在桥接词，则随机选择一个插入到新文本中
-                List<String> bridgeWordsList = new ArrayList<>(bridgeWords);
-                String randomBridge = bridgeWordsList.get(secureRandom.nextInt(bridgeWordsList.size()));
-                newText.append(randomBridge).append(" ");
-            }
+            // 查询当前单词和下一个单词之间的桥接词，如果存在则随机选择一个插入到新文本中
+            appendBridgeWord(graph, graph.id(currentWord), graph.id(nextWord), random, newText);
         }
 
         // 将最后一个单词添加到新文本中
         newText.append(words[words.length - 1]);
 
         // 打印生成的新文本
-        System.out.println("生成的新文本为: " + newText.toString());
+        if (print) {
+            System.out.println("生成的新文本为: " + newText.toString());
+        }
 
         return newText.toString();
     }
 
+    /**
+     * 流式生成新文本：按与 buildDirectedGraph 相同的规则从 input 中切分单词，在相邻单词之间插入桥接词后写入 output，
+     * 单词之间以一个空格分隔。内存占用只与分块大小有关，与输入大小无关。output 不会被关闭。
+     *
+     * @return 写出的单词数（包括插入的桥接词）
+     */
+    public long generateNewText(Reader input, Writer output, long seed) throws IOException {
+        return generateNewText(input, output, seed, false);
+    }
+
+    /**
+     * 与 generateNewText(input, output, seed) 相同，parallel 为 true 时各分块在公共线程池中并发处理。
+     * 输入按固定的单词数分块，相邻分块重叠一个单词以处理边界上的单词对；
+     * 每个分块按顺序从以 seed 为种子的随机数生成器 split 出自己的随机数流，再按顺序拼接输出，
+     * 因此相同的图、输入和 seed 总是得到相同的输出，与是否并行以及线程数无关。
+     */
+    public long generateNewText(Reader input, Writer output, long seed, boolean parallel) throws IOException {
+        CompactGraph graph = graph();
+        SplittableRandom root = new SplittableRandom(seed);
+        WordTokenizer tokenizer = new WordTokenizer(input);
+        // 并行时最多同时处理的分块数，限制内存占用
+        int window = parallel ? Math.max(1, ForkJoinPool.getCommonPoolParallelism()) * 2 : 1;
+        Deque<CompletableFuture<GeneratedChunk>> inFlight = new ArrayDeque<>();
+        long written = 0;
+        String previous = null;
+        while (true) {
+            // 第 0 个位置存放上一分块的最后一个单词
+            String[] words = new String[GENERATE_CHUNK_WORDS + 1];
+            words[0] = previous;
+            int count = 1;
+            String word;
+            while (count < words.length && (word = tokenizer.next()) != null) {
+                words[count++] = word;
+            }
+            if (count == 1) {
+                break;
+            }
+            previous = words[count - 1];
+            SplittableRandom random = root.split();
+            int size = count;
+            if (parallel) {
+                inFlight.add(CompletableFuture.supplyAsync(() -> generateChunk(graph, words, size, random)));
+                if (inFlight.size() >= window) {
+                    written += inFlight.poll().join().writeTo(output);
+                }
+            } else {
+                written += generateChunk(graph, words, size, random).writeTo(output);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            written += inFlight.poll().join().writeTo(output);
+        }
+        output.flush();
+        return written;
+    }
+
+    // 从文件 input 流式生成新文本并写入文件 output，两者均使用 UTF-8 编码；input 需通过与 buildDirectedGraph 相同的安全检查
+    public long generateNewTextFile(Path input, Path output, long seed) throws IOException {
+        return generateNewTextFile(input, output, seed, false);
+    }
+
+    public long generateNewTextFile(Path input, Path output, long seed, boolean parallel) throws IOException {
+        File checked = checkInputFile(input.toString());
+        try (Reader reader = new InputStreamReader(new FileInputStream(checked), "UTF-8");
+             Writer writer = new OutputStreamWriter(new FileOutputStream(output.toFile()), "UTF-8")) {
+            return generateNewText(reader, writer, seed, parallel);
+        }
+    }
+
+    // 处理一个分块：words[0] 为上一分块的最后一个单词（第一个分块为 null），只用于和 words[1] 组成单词对
+    private GeneratedChunk generateChunk(CompactGraph graph, String[] words, int count, SplittableRandom random) {
+        StringBuilder text = new StringBuilder(count * 8);
+        int produced = 0;
+        int previousId = words[0] == null ? -1 : graph.id(words[0]);
+        for (int k = 1; k < count; k++) {
+            int currentId = graph.id(words[k]);
+            if (words[0] != null || k > 1) {
+                text.append(' ');
+                if (appendBridgeWord(graph, previousId, currentId, random, text)) {
+                    produced++;
+                }
+            }
+            text.append(words[k]);
+            produced++;
+            previousId = currentId;
+        }
+        return new GeneratedChunk(text, produced);
+    }
+
+    // 一个分块生成的文本及其单词数
+    private static final class GeneratedChunk {
+        private final StringBuilder text;
+        private final int words;
+
+        GeneratedChunk(StringBuilder text, int words) {
+            this.text = text;
+            this.words = words;
+        }
+
+        int writeTo(Writer output) throws IOException {
+            output.append(text);
+            return words;
+        }
+    }
+
+    // 若 start 与 end 之间存在桥接词，随机选择一个并连同其后的空格追加到 text 中
+    private boolean appendBridgeWord(CompactGraph graph, int startId, int endId, SplittableRandom random, StringBuilder text) {
+        BridgeWordSet bridgeWords = bridgeWords(graph, startId, endId);
+        if (bridgeWords.isEmpty()) {
+            return false;
+        }
+        // 直接按下标取编号，不复制成列表
+        int randomBridge = bridgeWords.idAt(random.nextInt(bridgeWords.size()));
+        text.append(graph.word(randomBridge)).append(' ');
+        return true;
+    }
+
+    /**
+     * 预先计算所有单词对之间的桥接词，之后 queryBridgeWords 只需一次二分查找。
+     * 索引条目数约为 sum(入度 * 出度)，超过 maxEntries 时不建立索引并返回 false；图发生变化后索引自动失效。
+     */
+    public boolean buildBridgeIndex(long maxEntries) {
+        CompactGraph graph = graph();
+        BridgeIndex index = BridgeIndex.build(graph, maxEntries);
+        if (index == null) {
+            return false;
+        }
+        bridgeIndex = index;
+        return true;
+    }
+
+    private BridgeWordSet bridgeWords(CompactGraph graph, int startId, int endId) {
+        if (startId < 0 || endId < 0) {
+            return BridgeWordSet.EMPTY;
+        }
+        BridgeIndex index = bridgeIndex;
+        if (index != null && index.graph() == graph) {
+            return index.bridgeWords(startId, endId);
+        }
+        return BridgeIndex.intersect(graph, startId, endId);
+    }
+
     // 查询桥接词
     public Set<String> queryBridgeWords(String start, String end, Boolean print) {
-        // 删除未使用的变量声明
-        if (!directedGraph.containsKey(start) && print) {
+        CompactGraph graph = graph();
+        int startId = graph.id(start);
+        int endId = graph.id(end);
+        if (startId < 0 && print) {
             System.out.println("在图中没有\"" + start + "\"");
             return null;
         }
-        if (!directedGraph.containsKey(end) && print) {
+        if (endId < 0 && print) {
             System.out.println("在图中没有\"" + end + "\"");
             return null;
         }
-        // 广度优先搜索搜索桥接词
-        Set<String> bridgeWords = new HashSet<>();
-        Set<String> visited = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
-        queue.offer(start);
-        visited.add(start);
-        String current = queue.poll();
-        for (Map.Entry<String, Integer> entry : directedGraph.getOrDefault(current, Collections.emptyMap()).entrySet()) {
-            String neighbor = entry.getKey();
-            if (!visited.contains(neighbor)) {
-                visited.add(neighbor);
-                queue.offer(neighbor);
-                if (directedGraph.containsKey(neighbor) && directedGraph.get(neighbor).containsKey(end)) {
-                    bridgeWords.add(neighbor);
-                }
-            }
-        }
+        // 桥接词即 start 的后继中（不含 start 自身）存在指向 end 的边的节点，返回的集合不可修改
+        Set<String> bridgeWords = bridgeWords(graph, startId, endId);
         
         // 修改输出格式
         if (print) {
@@ -523,112 +1130,136 @@ public class TextToGraph {
         return bridgeWords;
     }
 
-       // 使用改进的Dijkstra算法找出所有最短路径，考虑边的权值
-       private List<List<Object>> findAllShortestPaths(String start, String end) {
-           // 如果起点或终点不存在于图中，返回空列表
-           if (!directedGraph.containsKey(start) || !directedGraph.containsKey(end)) {
-               return new ArrayList<>();
+       /**
+        * 开启全源最短距离索引：file 处已有与当前图一致的索引时直接加载，否则并行计算后写入该文件。
+        * 之后的最短路径查询直接从索引读取距离并还原路径，不再运行Dijkstra算法；图发生变化后索引自动失效。
+        */
+       public void precomputeDistances(Path file) throws IOException {
+           CompactGraph graph = graph();
+           DistanceIndex index = DistanceIndex.load(graph, file);
+           if (index == null) {
+               System.out.println("正在计算全源最短距离索引：" + file);
+               index = DistanceIndex.build(graph, file);
+           } else {
+               System.out.println("已加载全源最短距离索引：" + file);
            }
-           
-           // 初始化距离表
-           Map<String, Integer> distance = new HashMap<>();
-           // 存储每个节点的所有前驱节点及对应的边权重
-           Map<String, Map<String, Integer>> predecessors = new HashMap<>();
-           
-           // 初始化所有节点的距离为无穷大
-           for (String node : directedGraph.keySet()) {
-               distance.put(node, Integer.MAX_VALUE);
-               predecessors.put(node, new HashMap<>());
+           distanceIndex = index;
+       }
+
+       // 返回与当前图一致的全源最短距离索引，没有时返回 null
+       private DistanceIndex currentDistanceIndex(CompactGraph graph) {
+           DistanceIndex index = distanceIndex;
+           return index != null && index.graph() == graph ? index : null;
+       }
+
+       // 返回两个单词之间的最短距离，不存在或不可达时返回 -1
+       public int shortestDistance(String word1, String word2) {
+           CompactGraph graph = graph();
+           int startId = graph.id(word1);
+           int endId = graph.id(word2);
+           if (startId < 0 || endId < 0) {
+               return -1;
            }
-           
-           // 使用优先队列进行Dijkstra算法
-           PriorityQueue<Map.Entry<String, Integer>> queue = new PriorityQueue<>(
-               Comparator.comparingInt(Map.Entry::getValue)
-           );
-           distance.put(start, 0);
-           queue.offer(new AbstractMap.SimpleEntry<>(start, 0));
-           
-           // Dijkstra算法找到最短距离
-           while (!queue.isEmpty()) {
-               Map.Entry<String, Integer> current = queue.poll();
-               String currentNode = current.getKey();
-               int currentDistance = current.getValue();
-               
-               // 如果当前距离大于已知距离，跳过（可能是队列中的旧条目）
-               if (currentDistance > distance.get(currentNode)) {
-                   continue;
-               }
-               
-               // 遍历当前节点的所有邻居
-               for (Map.Entry<String, Integer> neighbor : directedGraph.getOrDefault(currentNode, Collections.emptyMap()).entrySet()) {
-                   String nextNode = neighbor.getKey();
-                   int weight = neighbor.getValue(); // 使用实际的边权重
-                   int newDistance = currentDistance + weight;
-                   
-                   // 如果找到更短的路径
-                   if (newDistance < distance.get(nextNode)) {
-                       distance.put(nextNode, newDistance);
-                       predecessors.get(nextNode).clear();
-                       predecessors.get(nextNode).put(currentNode, weight);
-                       queue.offer(new AbstractMap.SimpleEntry<>(nextNode, newDistance));
-                   } 
-                   // 如果找到等长的路径
-                   else if (newDistance == distance.get(nextNode)) {
-                       predecessors.get(nextNode).put(currentNode, weight);
-                   }
-               }
+           DistanceIndex index = currentDistanceIndex(graph);
+           if (index != null) {
+               int distance = index.distance(startId, endId);
+               return distance == ShortestPathTree.UNREACHABLE ? -1 : distance;
            }
-           
-           // 如果没有找到路径到终点
-           if (distance.get(end) == Integer.MAX_VALUE) {
-               return new ArrayList<>();
+           return BidirectionalSearch.run(graph, startId, endId).length();
+       }
+
+       // 从 source 出发运行一次Dijkstra算法，返回可以回答到任意目标的最短路径树；source 不在图中时返回 null
+       public ShortestPathTree shortestPathTree(String source) {
+           CompactGraph graph = graph();
+           int startId = graph.id(source);
+           if (startId < 0) {
+               return null;
            }
-           
-           // 使用DFS重建所有最短路径
-           List<List<Object>> allPaths = new ArrayList<>();
-           List<String> currentPath = new ArrayList<>();
-           currentPath.add(end);
-           
-           buildAllPaths(start, end, predecessors, currentPath, allPaths, distance.get(end));
-           
-           return allPaths;
+           DistanceIndex index = currentDistanceIndex(graph);
+           if (index != null) {
+               return index.tree(startId);
+           }
+           int[] distance = ShortestPathSearch.forCurrentThread().run(graph, startId);
+           return new ShortestPathTree(graph, startId, Arrays.copyOf(distance, graph.size()));
        }
-       
-       // 使用DFS重建所有最短路径
-       private void buildAllPaths(String start, String current, Map<String, Map<String, Integer>> predecessors, 
-                                 List<String> currentPath, List<List<Object>> allPaths, int pathLength) {
-           if (current.equals(start)) {
-               // 找到一条完整路径，需要反转路径
-               List<String> completePath = new ArrayList<>(currentPath);
-               Collections.reverse(completePath);
-               
-               List<Object> resultPath = new ArrayList<>();
-               resultPath.add(completePath);
-               resultPath.add(pathLength);
-               
-               allPaths.add(resultPath);
-               return;
+
+       // 与 shortestPathTree 相同，但直接使用当前线程的工作区，结果只在本线程下一次搜索之前有效
+       private ShortestPathTree searchFrom(String source) {
+           CompactGraph graph = graph();
+           int startId = graph.id(source);
+           if (startId < 0) {
+               return null;
            }
-           
-           // 遍历所有前驱节点
-           for (Map.Entry<String, Integer> predecessor : predecessors.get(current).entrySet()) {
-               String predecessorNode = predecessor.getKey();
-               currentPath.add(predecessorNode);
-               buildAllPaths(start, predecessorNode, predecessors, currentPath, allPaths, pathLength);
-               currentPath.remove(currentPath.size() - 1); // 回溯
+           DistanceIndex index = currentDistanceIndex(graph);
+           if (index != null) {
+               return index.tree(startId);
            }
+           return new ShortestPathTree(graph, startId, ShortestPathSearch.forCurrentThread().run(graph, startId));
        }
 
        // 计算两个单词之间的所有最短路径，并将它们标记为不同颜色
        public List<List<Object>> calcShortestPath(String word1, String word2, int i, String root) {
-           List<List<Object>> shortestPaths = findAllShortestPaths(word1, word2);
-           
-           if (shortestPaths.isEmpty()) {
+           return calcShortestPath(word1, word2, i, root, DEFAULT_PATH_LIMIT);
+       }
+
+       // 与上面相同，但最多只枚举、打印并绘制前 limit 条最短路径
+       // 使用双向Dijkstra算法，只搜索两个单词之间的区域
+       public List<List<Object>> calcShortestPath(String word1, String word2, int i, String root, int limit) {
+           CompactGraph graph = graph();
+           int startId = graph.id(word1);
+           int endId = graph.id(word2);
+           long pathCount = 0;
+           List<List<Object>> shortestPaths = Collections.emptyList();
+           DistanceIndex index = currentDistanceIndex(graph);
+           if (startId >= 0 && endId >= 0 && index != null) {
+               // 已有全源距离索引：不可达时 O(1) 返回，否则直接用索引中的一行还原路径
+               if (index.distance(startId, endId) != ShortestPathTree.UNREACHABLE) {
+                   ShortestPathTree tree = index.tree(startId);
+                   pathCount = tree.countPaths(word2);
+                   shortestPaths = tree.paths(word2, limit);
+               }
+           } else if (startId >= 0 && endId >= 0) {
+               BidirectionalSearch search = BidirectionalSearch.run(graph, startId, endId);
+               pathCount = search.countPaths();
+               if (pathCount > 0) {
+                   shortestPaths = search.paths(limit);
+               }
+           }
+           return reportShortestPaths(word1, word2, pathCount, shortestPaths, i, root);
+       }
+
+       // 计算 word1 到每个目标单词的最短路径：只运行一次Dijkstra算法，重复的目标只计算一次
+       // 第 k 个不同的目标对应的图像文件编号为 k
+       public Map<String, List<List<Object>>> calcShortestPaths(String word1, Collection<String> targets, String root) {
+           return calcShortestPaths(word1, targets, root, DEFAULT_PATH_LIMIT);
+       }
+
+       public Map<String, List<List<Object>>> calcShortestPaths(String word1, Collection<String> targets, String root,
+                                                                int limit) {
+           ShortestPathTree tree = searchFrom(word1);
+           Map<String, List<List<Object>>> result = new LinkedHashMap<>();
+           int index = 0;
+           for (String word2 : new LinkedHashSet<>(targets)) {
+               long pathCount = tree == null ? 0 : tree.countPaths(word2);
+               List<List<Object>> shortestPaths = pathCount == 0 ? Collections.emptyList() : tree.paths(word2, limit);
+               result.put(word2, reportShortestPaths(word1, word2, pathCount, shortestPaths, ++index, root));
+           }
+           return result;
+       }
+
+       // 打印最短路径并生成标记了路径的图像，没有路径时返回 null
+       // pathCount 为最短路径总条数，shortestPaths 为其中需要列出的部分
+       private List<List<Object>> reportShortestPaths(String word1, String word2, long pathCount,
+                                                      List<List<Object>> shortestPaths, int i, String root) {
+           if (pathCount == 0) {
                System.out.println("No path found between \"" + word1 + "\" and \"" + word2 + "\"");
                return null;
            }
            
-           System.out.println("找到 " + shortestPaths.size() + " 条从 \"" + word1 + "\" 到 \"" + word2 + "\" 的最短路径：");
+           System.out.println("找到 " + pathCount + " 条从 \"" + word1 + "\" 到 \"" + word2 + "\" 的最短路径：");
+           if (pathCount > shortestPaths.size()) {
+               System.out.println("仅列出前 " + shortestPaths.size() + " 条：");
+           }
            for (int j = 0; j < shortestPaths.size(); j++) {
                List<Object> p = shortestPaths.get(j);
                List<String> path = (List<String>) p.get(0);
@@ -640,87 +1271,183 @@ public class TextToGraph {
            String dotFilePath = "./graph/directed_graph_shortest" + i + ".dot";
            String imageFilePath = "./graph/directed_graph_shortest" + i + ".png";
            
-           // 生成 DOT 文件并标记最短路径为不同颜色
-           createDotFile(dotFilePath, shortestPaths, root);
-           
-           // 转换 DOT 文件为图像文件
-           convertDotToImage(dotFilePath, imageFilePath);
+           // 在后台生成标记了最短路径的 DOT 文件和图像，不等待 Graphviz 结束
+           render(dotFilePath, imageFilePath, shortestPaths, root);
            
            return shortestPaths;
        }
 
     public Double calPageRank(String word) {
-        if (!directedGraph.containsKey(word)) {
+        return calPageRank(word, false);
+    }
+
+    // parallel 为 true 时在 ForkJoin 公共线程池上按节点分块并行迭代
+    public Double calPageRank(String word, boolean parallel) {
+        CompactGraph graph = graph();
+        int wordId = graph.id(word);
+        if (wordId < 0) {
             System.out.println("在图中没有\"" + word + "\"");
             return 0.0;
         }
 
-        // 初始化PageRank值
-        Map<String, Double> pageRank = new HashMap<>();
-        Map<String, Double> newPageRank = new HashMap<>();
-        
+        // 返回指定单词的PageRank值
+        return pageRanks(graph, parallel)[wordId];
+    }
+
+    // 计算所有单词的PageRank值，按单词编号（即首次出现的顺序）排列
+    public Map<String, Double> calAllPageRanks() {
+        return calAllPageRanks(false);
+    }
+
+    public Map<String, Double> calAllPageRanks(boolean parallel) {
+        CompactGraph graph = graph();
+        double[] ranks = pageRanks(graph, parallel);
+        Map<String, Double> result = new LinkedHashMap<>(graph.size() * 4 / 3 + 1);
+        for (int node = 0; node < graph.size(); node++) {
+            result.put(graph.word(node), ranks[node]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    // 返回PageRank值最高的k个单词，按PageRank值从高到低排列
+    public List<Map.Entry<String, Double>> topPageRanks(int k) {
+        return topPageRanks(k, false);
+    }
+
+    public List<Map.Entry<String, Double>> topPageRanks(int k, boolean parallel) {
+        CompactGraph graph = graph();
+        double[] ranks = pageRanks(graph, parallel);
+        // 用大小为k的小顶堆筛选，代价为 O(N log k)
+        Comparator<Integer> byRank = (a, b) -> a.equals(b) ? 0
+                : ranks[a] != ranks[b] ? Double.compare(ranks[a], ranks[b]) : Integer.compare(b, a);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, k), byRank);
+        for (int node = 0; node < graph.size() && k > 0; node++) {
+            if (heap.size() < k) {
+                heap.offer(node);
+            } else if (byRank.compare(node, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(node);
+            }
+        }
+        List<Map.Entry<String, Double>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            result.add(new AbstractMap.SimpleImmutableEntry<>(graph.word(node), ranks[node]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // 返回缓存的PageRank向量，图发生变化后自动重新计算
+    private double[] pageRanks(CompactGraph graph, boolean parallel) {
+        PageRankCache cache = pageRankCache;
+        if (cache == null || cache.graph != graph) {
+            double[] initial = pageRankWarmStart && cache != null ? warmStart(cache.ranks, graph.size()) : null;
+            cache = new PageRankCache(graph, computePageRank(graph, parallel, initial));
+            pageRankCache = cache;
+        }
+        return cache.ranks;
+    }
+
+    /**
+     * 开启后，图因追加文本而变化时PageRank从上一次的结果（新节点取 1/N，再整体归一化）开始迭代，
+     * 小幅更新通常只需少数几轮就能收敛；结果与从头计算的差别在收敛阈值以内。默认关闭。
+     */
+    public void setPageRankWarmStart(boolean enabled) {
+        pageRankWarmStart = enabled;
+    }
+
+    // 以上一次的PageRank向量作为初值；追加文本时已有单词的编号不变，新单词排在后面
+    private static double[] warmStart(double[] previous, int n) {
+        double[] initial = new double[n];
+        double total = 0.0;
+        for (int node = 0; node < n; node++) {
+            initial[node] = node < previous.length ? previous[node] : 1.0 / n;
+            total += initial[node];
+        }
+        for (int node = 0; node < n; node++) {
+            initial[node] /= total;
+        }
+        return initial;
+    }
+
+    // 幂迭代计算所有节点的PageRank值，借助反向邻接表每轮迭代的代价为 O(V + E)
+    // 并行模式下节点按固定大小分块，出度为0节点的PageRank总和与差异 diff 先按块求部分和，再按块顺序累加
+    private double[] computePageRank(CompactGraph graph, boolean parallel, double[] initial) {
         // 获取图中节点总数N
-        int N = directedGraph.size();
+        int N = graph.size();
         
         // 初始化所有节点的PageRank值为1.0/N
-        for (String node : directedGraph.keySet()) {
-            pageRank.put(node, 1.0 / N);
+        double[] pageRank = new double[N];
+        double[] newPageRank = new double[N];
+        double[] share = new double[N]; // 每个节点沿每条出边分出的值 PR(v)/L(v)
+        if (initial != null) {
+            System.arraycopy(initial, 0, pageRank, 0, N);
+        } else {
+            Arrays.fill(pageRank, 1.0 / N);
         }
         
         // 阻尼系数d设为0.85
         double d = 0.85;
         double epsilon = 0.0001; // 收敛阈值
         int maxIterations = 100; // 最大迭代次数
+
+        int[] blocks = parallel ? partitionByInDegree(graph) : new int[]{0, N};
+        int blockCount = blocks.length - 1;
+        double[] partialSums = new double[blockCount];
         
         // 迭代计算PageRank
         for (int iter = 0; iter < maxIterations; iter++) {
-            double diff = 0.0;
-            
-            // 找出所有出度为0的节点
-            Set<String> sinkNodes = new HashSet<>();
-            for (Map.Entry<String, Map<String, Integer>> entry : directedGraph.entrySet()) {
-                if (entry.getValue().isEmpty()) {
-                    sinkNodes.add(entry.getKey());
+            double[] current = pageRank;
+            double[] next = newPageRank;
+
+            // 计算每个节点分出的值，以及出度为0的节点的PageRank总和
+            forEachBlock(parallel, blockCount, b -> {
+                double sinkSum = 0.0;
+                for (int node = blocks[b]; node < blocks[b + 1]; node++) {
+                    int outDegree = graph.outDegree(node);
+                    if (outDegree == 0) {
+                        sinkSum += current[node];
+                        share[node] = 0.0;
+                    } else {
+                        share[node] = current[node] / outDegree;
+                    }
                 }
-            }
-            
-            // 计算出度为0的节点的PageRank总和
+                partialSums[b] = sinkSum;
+            });
             double sinkPR = 0;
-            for (String sinkNode : sinkNodes) {
-                sinkPR += pageRank.get(sinkNode);
+            for (double partial : partialSums) {
+                sinkPR += partial;
             }
             
-            // 计算每个节点的新PageRank值
-            for (String node : directedGraph.keySet()) {
-                double sum = 0.0;
-                
-                // 查找所有指向当前节点的节点
-                for (Map.Entry<String, Map<String, Integer>> sourceEntry : directedGraph.entrySet()) {
-                    String sourceNode = sourceEntry.getKey();
-                    Map<String, Integer> edges = sourceEntry.getValue();
-                    
-                    if (edges.containsKey(node)) {
-                        // 计算sourceNode的出度L(v)
-                        int outDegree = edges.size();
-                        
-                        // 累加PR(v)/L(v)
-                        sum += pageRank.get(sourceNode) / outDegree;
+            // 计算每个节点的新PageRank值：PR(u) = (1-d)/N + d*sum
+            double base = (1 - d) / N;
+            double sinkShare = sinkPR / N;
+            forEachBlock(parallel, blockCount, b -> {
+                double blockDiff = 0.0;
+                for (int node = blocks[b]; node < blocks[b + 1]; node++) {
+                    double sum = 0.0;
+                    // 累加所有指向当前节点的节点的PR(v)/L(v)
+                    for (int e = graph.inStart(node); e < graph.inEnd(node); e++) {
+                        sum += share[graph.source(e)];
                     }
+                    // 添加来自出度为0的节点的贡献
+                    sum += sinkShare;
+                    double newRank = base + d * sum;
+                    next[node] = newRank;
+                    // 计算与上一次迭代的差异
+                    blockDiff += Math.abs(newRank - current[node]);
                 }
-                
-                // 添加来自出度为0的节点的贡献
-                sum += sinkPR / N;
-                
-                // 计算新的PageRank值：PR(u) = (1-d)/N + d*sum
-                double newRank = (1 - d) / N + d * sum;
-                newPageRank.put(node, newRank);
-                
-                // 计算与上一次迭代的差异
-                diff += Math.abs(newRank - pageRank.get(node));
+                partialSums[b] = blockDiff;
+            });
+            double diff = 0.0;
+            for (double partial : partialSums) {
+                diff += partial;
             }
             
             // 更新PageRank值
-            pageRank = new HashMap<>(newPageRank);
+            pageRank = next;
+            newPageRank = current;
             
             // 如果收敛，则提前结束迭代
             if (diff < epsilon) {
@@ -728,54 +1455,52 @@ public class TextToGraph {
                 break;
             }
         }
-        
-        // 返回指定单词的PageRank值
-        return pageRank.get(word);
+        return pageRank;
     }
 
-    public String randomWalk() {
-        // 选择随机起点
-        SecureRandom secureRandom = new SecureRandom(); // 使用SecureRandom替代Random
-        List<String> vertices = new ArrayList<>(directedGraph.keySet());
-        String currentVertex = vertices.get(secureRandom.nextInt(vertices.size()));
-
-        StringBuilder randomWalkText = new StringBuilder();
-        // 记录遍历的节点
-        List<String> visitedVertices = new ArrayList<>();
-        // 删除无用的边列表
-        // List<String> visitedEdges = new ArrayList<>();
-
-        // 开始随机游走
-        while (!stopWalk) {
-            visitedVertices.add(currentVertex);
-            Map<String, Integer> edges = directedGraph.get(currentVertex);
-            if (edges != null && !edges.isEmpty()) {
-                List<String> nextVertices = new ArrayList<>(edges.keySet());
-                String nextVertex = nextVertices.get(secureRandom.nextInt(nextVertices.size()));
-                String edge = currentVertex + " -> " + nextVertex;
-                // 删除对无用列表的操作
-                // visitedEdges.add(edge);
-                currentVertex = nextVertex;
-
-                // 模拟延迟以便于演示
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            } else {
-                break; // 当前节点没有出边，结束随机游走
+    // 按 节点数 + 入边数 把节点划分为工作量大致相等的连续区间
+    private static int[] partitionByInDegree(CompactGraph graph) {
+        int n = graph.size();
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        long work = 0;
+        for (int node = 0; node < n; node++) {
+            work += 1 + graph.inDegree(node);
+            if (work >= PAGE_RANK_BLOCK_WORK) {
+                bounds.add(node + 1);
+                work = 0;
+            }
+        }
+        if (bounds.get(bounds.size() - 1) != n) {
+            bounds.add(n);
+        }
+        int[] blocks = new int[bounds.size()];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = bounds.get(i);
+        }
+        return blocks;
+    }
+
+    private static void forEachBlock(boolean parallel, int blockCount, IntConsumer task) {
+        if (parallel) {
+            IntStream.range(0, blockCount).parallel().forEach(task);
+        } else {
+            for (int b = 0; b < blockCount; b++) {
+                task.accept(b);
             }
         }
+    }
 
+    public String randomWalk() {
+        // 演示模式：每步等待 500 毫秒，直到 stopWalk 被置位或走到没有出边的节点
+        WalkOptions options = new WalkOptions().stepDelayMillis(500).stopWhen(() -> stopWalk);
         // 将遍历的节点输出为文本，并以文件形式写入磁盘
         String outputPath = "./random_walk.txt";
-        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputPath), "UTF-8"))) {
-            writer.println("随机游走的节点:");
-            for (String vertex : visitedVertices) {
-                randomWalkText.append(vertex).append(" ");
-            }
-            writer.println(randomWalkText);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputPath), "UTF-8"))) {
+            writer.write("随机游走的节点:");
+            writer.write(System.lineSeparator());
+            randomWalk(options, writer);
+            writer.write(System.lineSeparator());
 
             System.out.println("随机游走的结果已写入文件：" + outputPath);
         } catch (IOException e) {
@@ -784,4 +1509,125 @@ public class TextToGraph {
 
         return outputPath;
     }
+
+    /**
+     * 按 options 进行一次随机游走，每访问一个节点就把单词和一个空格写入 output（调用者应传入带缓冲的 Writer）。
+     * 走到没有出边的节点、达到最大步数、停止条件成立或当前线程被中断时结束。
+     *
+     * @return 访问的节点数
+     */
+    public long randomWalk(WalkOptions options, Writer output) throws IOException {
+        CompactGraph graph = graph();
+        SplittableRandom random = newRandom(options.seed);
+        AliasSampler sampler = options.weighted ? aliasSampler(graph) : null;
+        return writeWalk(graph, sampler, options, random, options.stopCondition, output);
+    }
+
+    /**
+     * 在后台线程中开始一次随机游走并立即返回句柄，访问的节点写入 output（调用者应传入带缓冲的 Writer，游走结束后由调用者关闭）。
+     * 句柄的 cancel() 与 options 中的停止条件都可以结束游走。
+     */
+    public WalkHandle startRandomWalk(WalkOptions options, Writer output) {
+        return startRandomWalk(options, output, false);
+    }
+
+    /**
+     * 与 startRandomWalk(options, output) 相同，结果按 randomWalk() 的格式写入文件 outputPath，
+     * 文件在句柄完成之前关闭。文件无法创建时直接抛出 IOException。
+     */
+    public WalkHandle startRandomWalk(WalkOptions options, String outputPath) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputPath), "UTF-8"));
+        writer.write("随机游走的节点:");
+        writer.write(System.lineSeparator());
+        return startRandomWalk(options, writer, true);
+    }
+
+    private WalkHandle startRandomWalk(WalkOptions options, Writer output, boolean ownsOutput) {
+        CompactGraph graph = graph();
+        SplittableRandom random = newRandom(options.seed);
+        AliasSampler sampler = options.weighted ? aliasSampler(graph) : null;
+        WalkHandle handle = new WalkHandle();
+        handle.start(walk -> {
+            BooleanSupplier stop = () -> walk.isCancelled() || options.stopCondition.getAsBoolean();
+            if (!ownsOutput) {
+                return writeWalk(graph, sampler, options, random, stop, output);
+            }
+            try (Writer writer = output) {
+                long steps = writeWalk(graph, sampler, options, random, stop, writer);
+                writer.write(System.lineSeparator());
+                return steps;
+            }
+        });
+        return handle;
+    }
+
+    // 游走并把每个节点的单词和一个空格写入 output
+    private static long writeWalk(CompactGraph graph, AliasSampler sampler, WalkOptions options, SplittableRandom random,
+                                  BooleanSupplier stop, Writer output) throws IOException {
+        long steps = RandomWalker.walk(graph, sampler, options, random, stop, vertex -> {
+            output.write(graph.word(vertex));
+            output.write(' ');
+        });
+        output.flush();
+        return steps;
+    }
+
+    /**
+     * 在工作窃取线程池中并发进行 walkCount 次相互独立的随机游走，立即返回可以等待、取消和查询访问次数的批次。
+     * 第 i 次游走的随机数流由 options 的种子按顺序 split 得到，因此固定种子时每次游走的序列都可以复现。
+     * outputPrefix 不为 null 时，每次游走写入当时空闲的一个分片文件 outputPrefix-k.txt 并占一行，边走边写；
+     * 写文件时同时进行的游走数不超过 shardCount，通常应不少于处理器数；
+     * 为 null 时只统计访问次数。
+     * （Java 8 没有虚拟线程，这里使用 Executors.newWorkStealingPool，线程数等于处理器数。）
+     */
+    public RandomWalkBatch randomWalks(int walkCount, WalkOptions options, String outputPrefix, int shardCount)
+            throws IOException {
+        CompactGraph graph = graph();
+        SplittableRandom root = newRandom(options.seed);
+        AliasSampler sampler = options.weighted ? aliasSampler(graph) : null;
+        return RandomWalkBatch.start(graph, sampler, walkCount, options, root, outputPrefix, shardCount);
+    }
+
+    // 返回当前紧凑图的加权采样器，图变化后重新创建，已建立的别名表在同一个图上一直复用
+    private AliasSampler aliasSampler(CompactGraph graph) {
+        AliasSampler sampler = aliasSampler;
+        if (sampler == null || sampler.graph() != graph) {
+            sampler = new AliasSampler(graph);
+            aliasSampler = sampler;
+        }
+        return sampler;
+    }
+
+    // 与某个紧凑图绑定的 DOT 边语句，以及用它写出过的 DOT 文件
+    private static final class DotBodyCache {
+        final CompactGraph graph;
+        final ByteBuffer body;
+        final Map<String, DotFile> files = new ConcurrentHashMap<>();
+
+        DotBodyCache(CompactGraph graph, ByteBuffer body) {
+            this.graph = graph;
+            this.body = body;
+        }
+    }
+
+    // 某个 DOT 文件上一次写出后的状态：文件头和全图的边保留在文件开头，之后只需改写其后标记路径的部分
+    private static final class DotFile {
+        byte[] head; // 为 null 时文件内容未知，需要整体重写
+        MessageDigest prefix; // 文件头和边的摘要中间状态
+        long prefixLength;
+        // 写出后的文件大小和修改时间，用来发现外部的修改
+        long size;
+        FileTime modified;
+    }
+
+    // 与某个紧凑图绑定的PageRank计算结果
+    private static final class PageRankCache {
+        final CompactGraph graph;
+        final double[] ranks;
+
+        PageRankCache(CompactGraph graph, double[] ranks) {
+            this.graph = graph;
+            this.ranks = ranks;
+        }
+    }
 }
@@ -9,6 +9,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.Set;
 
 public class TextToGraphTest {
@@ -184,4 +185,23 @@ public class TextToGraphTest {
         String output = outContent.toString();
         assertTrue(output.isEmpty(), "不应有任何输出");
     }
-}
\ No newline at end of file
+
+    // 测试用例7：在 addNode 和 addEdge 之间执行查询，之后仍能正常添加边
+    @Test
+    @DisplayName("测试 - 查询之后继续添加边")
+    public void testAddEdgeAfterQuery() {
+        TextToGraph graph = new TextToGraph();
+        graph.addNode("alpha");
+        graph.addNode("beta");
+        graph.addNode("gamma");
+
+        // 查询会合并暂存的节点
+        Set<String> bridgeWords = graph.queryBridgeWords("alpha", "gamma", false);
+        assertTrue(bridgeWords.isEmpty(), "尚未添加边时不应有桥接词");
+
+        graph.addEdge("alpha", "beta");
+        graph.addEdge("beta", "gamma");
+        bridgeWords = graph.queryBridgeWords("alpha", "gamma", false);
+        assertEquals(Collections.singleton("beta"), bridgeWords, "桥接词应为 beta");
+    }
+}
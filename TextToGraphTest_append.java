@@ -0,0 +1,225 @@
+import org.junit.Test;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TextToGraphTest_append {
+
+    private final String corpusPath = "./test/Cursed Be The Treasure.txt";
+    private final String testFilePath = "./test/junit_append.txt";
+
+    @After
+    public void tearDown() {
+        new File(testFilePath).delete();
+    }
+
+    // 测试用例1：分多次追加并在中途查询（每次查询都合并一次），得到的图与一次构建整篇文本完全相同，指纹也相同
+    @Test
+    public void testAppendedGraphMatchesFullBuild() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(corpusPath)), StandardCharsets.UTF_8);
+        TextToGraph full = new TextToGraph();
+        full.buildDirectedGraph(corpusPath);
+
+        Random random = new Random(20);
+        TextToGraph appended = new TextToGraph();
+        int position = 0;
+        boolean first = true;
+        while (position < text.length()) {
+            // 在空白处切开，使单词不被拆开；文档之间用 continuePrevious 连接
+            int end = Math.min(text.length(), position + 1 + random.nextInt(first ? 200 : 60000));
+            while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            appended.appendText(new StringReader(text.substring(position, end)), !first);
+            if (random.nextBoolean()) {
+                appended.queryBridgeWords("the", "of", false);
+            }
+            position = end;
+            first = false;
+        }
+        assertSameGraph(full.graph(), appended.graph());
+
+        // 不连接的两篇文档之间没有边
+        TextToGraph separate = new TextToGraph();
+        separate.appendText(new StringReader("alpha beta"));
+        separate.graph();
+        separate.appendText(new StringReader("gamma delta"), false);
+        assertFalse(separate.graph().hasEdge(separate.graph().id("beta"), separate.graph().id("gamma")));
+        separate.appendText(new StringReader("epsilon"), true);
+        assertTrue("continuePrevious 应连接上一篇的最后一个单词",
+                separate.graph().hasEdge(separate.graph().id("delta"), separate.graph().id("epsilon")));
+    }
+
+    // 测试用例2：随机的新增边（新单词、新来源、已有的边）合并后，出边、入边和权值都与按定义重新构建的图相同
+    @Test
+    public void testMergeMatchesRebuild() {
+        Random random = new Random(21);
+        for (int round = 0; round < 200; round++) {
+            Map<String, Map<String, Integer>> all = new LinkedHashMap<>();
+            CompactGraph graph = CompactGraph.merge(CompactGraph.EMPTY, randomEdges(random, 30, all));
+            for (int step = 0; step < 4; step++) {
+                CompactGraph base = graph;
+                int baseSize = base.size();
+                long baseFingerprint = base.fingerprint();
+                graph = CompactGraph.merge(base, randomEdges(random, 40, all));
+                assertEdges(all, graph);
+                CompactGraph rebuilt = rebuild(graph);
+                assertSameGraph(rebuilt, graph);
+                // 旧的紧凑图不受影响：新单词对它不可见
+                assertEquals(baseSize, base.size());
+                for (int u = baseSize; u < graph.size(); u++) {
+                    assertEquals("新单词对旧的紧凑图不可见", -1, base.id(graph.word(u)));
+                }
+                assertEquals(baseFingerprint, rebuild(base).fingerprint());
+            }
+        }
+    }
+
+    // 测试用例3：从同一个旧紧凑图分别合并两次（共享的编号表已被扩展过）时，两个结果各自正确
+    @Test
+    public void testMergingTheSameBaseTwice() {
+        Map<String, Map<String, Integer>> baseEdges = new LinkedHashMap<>();
+        addEdge(baseEdges, "a", "b", 1);
+        CompactGraph base = CompactGraph.merge(CompactGraph.EMPTY, baseEdges);
+
+        Map<String, Map<String, Integer>> first = new LinkedHashMap<>();
+        addEdge(first, "b", "x", 2);
+        Map<String, Map<String, Integer>> second = new LinkedHashMap<>();
+        addEdge(second, "y", "a", 3);
+        CompactGraph left = CompactGraph.merge(base, first);
+        CompactGraph right = CompactGraph.merge(base, second);
+
+        assertEquals(2, left.id("x"));
+        assertEquals(-1, left.id("y"));
+        assertEquals(2, right.id("y"));
+        assertEquals(-1, right.id("x"));
+        assertEquals(-1, base.id("x"));
+        assertEquals(-1, base.id("y"));
+        assertSameGraph(rebuild(left), left);
+        assertSameGraph(rebuild(right), right);
+    }
+
+    // 测试用例4：开启热启动后追加少量文本，PageRank 更快收敛，结果与一次构建整篇文本的图在收敛阈值以内
+    @Test
+    public void testWarmStartAfterAppend() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(corpusPath)), StandardCharsets.UTF_8);
+        int split = text.lastIndexOf(' ', text.length() - 2000);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(testFilePath), StandardCharsets.UTF_8)) {
+            writer.write(text.substring(0, split));
+        }
+        TextToGraph warm = new TextToGraph();
+        warm.setPageRankWarmStart(true);
+        warm.buildDirectedGraph(testFilePath);
+        TextToGraph full = new TextToGraph();
+        full.buildDirectedGraph(corpusPath);
+
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        Map<String, Double> warmRanks;
+        Map<String, Double> fullRanks;
+        List<Integer> iterations;
+        try {
+            warm.calAllPageRanks();
+            warm.appendText(new StringReader(text.substring(split)), true);
+            warmRanks = warm.calAllPageRanks();
+            fullRanks = full.calAllPageRanks();
+            iterations = iterations(output.toString("UTF-8"));
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertSameGraph(full.graph(), warm.graph());
+        assertEquals(3, iterations.size());
+        assertTrue("热启动应更快收敛: " + iterations, iterations.get(1) < iterations.get(2));
+        double difference = 0.0;
+        for (String word : fullRanks.keySet()) {
+            difference += Math.abs(fullRanks.get(word) - warmRanks.get(word));
+        }
+        assertTrue("与从头计算的差别应在收敛阈值附近: " + difference, difference < 0.001);
+    }
+
+    // 从输出中取出每次计算PageRank的迭代次数
+    private static List<Integer> iterations(String printed) {
+        List<Integer> result = new ArrayList<>();
+        Matcher matcher = Pattern.compile("PageRank算法在第(\\d+)次迭代后收敛").matcher(printed);
+        while (matcher.find()) {
+            result.add(Integer.parseInt(matcher.group(1)));
+        }
+        return result;
+    }
+
+    // 随机生成一批新增边，同时累加到 all 中；单词从逐渐扩大的词表中选取，既有新单词也有已有的单词
+    private static Map<String, Map<String, Integer>> randomEdges(Random random, int count,
+                                                                 Map<String, Map<String, Integer>> all) {
+        Map<String, Map<String, Integer>> pending = new LinkedHashMap<>();
+        int vocabulary = 5 + all.size() + random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            String source = "w" + random.nextInt(vocabulary);
+            String target = "w" + random.nextInt(vocabulary);
+            int weight = 1 + random.nextInt(3);
+            addEdge(pending, source, target, weight);
+            addEdge(all, source, target, weight);
+        }
+        if (random.nextInt(4) == 0) {
+            pending.putIfAbsent("isolated" + random.nextInt(5), new HashMap<>());
+        }
+        return pending;
+    }
+
+    private static void addEdge(Map<String, Map<String, Integer>> edges, String source, String target, int weight) {
+        edges.computeIfAbsent(source, k -> new HashMap<>()).merge(target, weight, Integer::sum);
+    }
+
+    // 图中的边与累加得到的边完全相同
+    private static void assertEdges(Map<String, Map<String, Integer>> expected, CompactGraph graph) {
+        int edges = 0;
+        for (Map.Entry<String, Map<String, Integer>> entry : expected.entrySet()) {
+            int u = graph.id(entry.getKey());
+            for (Map.Entry<String, Integer> edge : entry.getValue().entrySet()) {
+                assertEquals("边的权值应一致", (int) edge.getValue(), graph.weight(u, graph.id(edge.getKey())));
+                edges++;
+            }
+        }
+        assertEquals("边数应一致", edges, graph.edgeCount());
+    }
+
+    // 用同样的单词顺序和出边重新构造紧凑图，反向邻接表与编号表都重新计算
+    private static CompactGraph rebuild(CompactGraph graph) {
+        String[] words = new String[graph.size()];
+        int[] rowStarts = new int[graph.size() + 1];
+        long[] entries = new long[graph.edgeCount()];
+        for (int u = 0; u < graph.size(); u++) {
+            words[u] = graph.word(u);
+            rowStarts[u + 1] = graph.outEnd(u);
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                entries[e] = ((long) graph.target(e) << 32) | graph.weight(e);
+            }
+        }
+        return CompactGraph.fromRows(words, rowStarts, entries);
+    }
+
+    private static void assertSameGraph(CompactGraph expected, CompactGraph actual) {
+        assertEquals("单词数应一致", expected.size(), actual.size());
+        assertEquals("边数应一致", expected.edgeCount(), actual.edgeCount());
+        for (int u = 0; u < expected.size(); u++) {
+            assertEquals("单词编号应一致", expected.word(u), actual.word(u));
+            assertEquals("编号表应一致", u, actual.id(expected.word(u)));
+            assertEquals("出边应一致: " + expected.word(u), expected.outEnd(u), actual.outEnd(u));
+            assertEquals("入边应一致: " + expected.word(u), expected.inEnd(u), actual.inEnd(u));
+        }
+        for (int e = 0; e < expected.edgeCount(); e++) {
+            assertEquals("边的终点应一致", expected.target(e), actual.target(e));
+            assertEquals("边的权值应一致", expected.weight(e), actual.weight(e));
+            assertEquals("入边的来源应一致", expected.source(e), actual.source(e));
+            assertEquals("入边的权值应一致", expected.inWeight(e), actual.inWeight(e));
+        }
+        assertEquals("图指纹应一致", expected.fingerprint(), actual.fingerprint());
+    }
+}
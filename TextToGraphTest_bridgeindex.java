@@ -0,0 +1,146 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.*;
+
+public class TextToGraphTest_bridgeindex {
+
+    private final String corpusPath = "./test/Cursed Be The Treasure.txt";
+
+    // 测试用例1：在真实语料上，使用桥接词索引与求交集得到的桥接词及其顺序都相同，并与按定义枚举的结果一致
+    @Test
+    public void testIndexMatchesIntersectionOnCorpus() throws IOException {
+        TextToGraph plain = new TextToGraph();
+        plain.buildDirectedGraph(corpusPath);
+        TextToGraph indexed = new TextToGraph();
+        indexed.buildDirectedGraph(corpusPath);
+        assertTrue("语料的索引应在上限之内", indexed.buildBridgeIndex(Integer.MAX_VALUE));
+
+        CompactGraph graph = plain.graph();
+        Random random = new Random(23);
+        int nonEmpty = 0;
+        for (int u = 0; u < graph.size(); u++) {
+            // 所有二跳可达的终点（桥接词非空），起点自身，以及若干随机的终点
+            Set<Integer> ends = new TreeSet<>();
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                int v = graph.target(e);
+                for (int f = graph.outStart(v); f < graph.outEnd(v); f++) {
+                    ends.add(graph.target(f));
+                }
+            }
+            ends.add(u);
+            for (int k = 0; k < 5; k++) {
+                ends.add(random.nextInt(graph.size()));
+            }
+            for (int w : ends) {
+                String start = graph.word(u);
+                String end = graph.word(w);
+                List<String> expected = bruteForce(graph, u, w);
+                List<String> fromIntersection = new ArrayList<>(plain.queryBridgeWords(start, end, false));
+                List<String> fromIndex = new ArrayList<>(indexed.queryBridgeWords(start, end, false));
+                assertEquals("求交集的结果应符合定义: " + start + " -> " + end, expected, fromIntersection);
+                assertEquals("索引的结果应与求交集相同: " + start + " -> " + end, fromIntersection, fromIndex);
+                nonEmpty += expected.isEmpty() ? 0 : 1;
+            }
+        }
+        assertTrue("应比较足够多的非空结果", nonEmpty > 10000);
+    }
+
+    // 测试用例2：起点与终点相同、终点或起点有自环、单词不在图中时，两种查询的结果相同
+    @Test
+    public void testSpecialCases() throws IOException {
+        String text = "a b b c a a the cat the";
+        TextToGraph plain = new TextToGraph();
+        plain.appendText(new StringReader(text));
+        TextToGraph indexed = new TextToGraph();
+        indexed.appendText(new StringReader(text));
+        assertTrue(indexed.buildBridgeIndex(1000));
+
+        for (TextToGraph textToGraph : Arrays.asList(plain, indexed)) {
+            // 终点 b 有自环：a -> b -> b
+            assertEquals(set("b"), textToGraph.queryBridgeWords("a", "b", false));
+            // 终点 a 有自环：c -> a -> a
+            assertEquals(set("a"), textToGraph.queryBridgeWords("c", "a", false));
+            // 起点自身不是桥接词：a -> a -> a 不算
+            assertEquals(set(), textToGraph.queryBridgeWords("a", "a", false));
+            // 起点与终点相同：the -> cat -> the
+            assertEquals(set("cat"), textToGraph.queryBridgeWords("the", "the", false));
+            assertEquals(set("c"), textToGraph.queryBridgeWords("b", "a", false));
+
+            assertEquals(set(), textToGraph.queryBridgeWords("missing", "a", false));
+            assertEquals(set(), textToGraph.queryBridgeWords("a", "missing", false));
+            assertEquals(set(), textToGraph.queryBridgeWords("missing", "other", false));
+            PrintStream originalOut = System.out;
+            System.setOut(new PrintStream(new ByteArrayOutputStream()));
+            try {
+                assertNull("打印时单词不在图中返回 null", textToGraph.queryBridgeWords("missing", "a", true));
+                assertNull(textToGraph.queryBridgeWords("a", "missing", true));
+            } finally {
+                System.setOut(originalOut);
+            }
+        }
+    }
+
+    // 测试用例3：条目数超过上限时不建立索引，上限按 int 范围截断，查询退回求交集
+    @Test
+    public void testBuildFallsBackWhenTooLarge() throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader("a b c a b d b c"));
+        CompactGraph graph = textToGraph.graph();
+        long total = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            total += (long) graph.inDegree(v) * graph.outDegree(v);
+        }
+        assertNotNull("恰好等于上限时应建立索引", BridgeIndex.build(graph, total));
+        assertNull("超过上限时应放弃", BridgeIndex.build(graph, total - 1));
+        assertFalse(textToGraph.buildBridgeIndex(total - 1));
+        assertEquals("未建立索引时仍可查询", set("b"), textToGraph.queryBridgeWords("a", "c", false));
+
+        // 中心节点的入度和出度都是 50000，条目数 2.5e9 超过 int 范围：即使上限为 Long.MAX_VALUE 也应放弃
+        CompactGraph star = star(50000);
+        assertNull("条目数超过 int 范围时应放弃", BridgeIndex.build(star, Long.MAX_VALUE));
+        assertTrue("求交集仍可查询", BridgeIndex.intersect(star, 0, 50001).contains("hub"));
+    }
+
+    // 按定义枚举：start 的后继中除 start 自身以外、存在指向 end 的边的节点，按编号升序
+    private static List<String> bruteForce(CompactGraph graph, int start, int end) {
+        List<String> result = new ArrayList<>();
+        for (int e = graph.outStart(start); e < graph.outEnd(start); e++) {
+            int v = graph.target(e);
+            if (v != start && graph.hasEdge(v, end)) {
+                result.add(graph.word(v));
+            }
+        }
+        return result;
+    }
+
+    // 编号 0 到 count - 1 的节点都指向中心节点 hub（编号 count），hub 指向编号 count + 1 到 2 * count 的节点
+    private static CompactGraph star(int count) {
+        int n = 2 * count + 1;
+        String[] words = new String[n];
+        for (int u = 0; u < n; u++) {
+            words[u] = u == count ? "hub" : "node" + u;
+        }
+        int[] rowStarts = new int[n + 1];
+        long[] entries = new long[2 * count];
+        for (int u = 0; u < count; u++) {
+            rowStarts[u + 1] = u + 1;
+            entries[u] = ((long) count << 32) | 1;
+        }
+        for (int k = 0; k < count; k++) {
+            entries[count + k] = ((long) (count + 1 + k) << 32) | 1;
+        }
+        for (int u = count; u < n; u++) {
+            rowStarts[u + 1] = 2 * count;
+        }
+        return CompactGraph.fromRows(words, rowStarts, entries);
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,207 @@
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TextToGraphTest_concurrent {
+
+    private static final int QUERIES = 400; // 每个线程执行的查询次数
+    private final String testFilePath = "./test/Cursed Be The Treasure.txt";
+
+    private TextToGraph textToGraph;
+    private String[] words;
+    private final List<String[]> pairs = new ArrayList<>();
+    // 单线程下得到的参考结果
+    private final List<Set<String>> expectedBridges = new ArrayList<>();
+    private final List<Integer> expectedDistances = new ArrayList<>();
+    private final List<Double> expectedRanks = new ArrayList<>();
+    private final List<String> expectedTexts = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        // 构建并冻结有向图
+        textToGraph = new TextToGraph();
+        words = textToGraph.buildDirectedGraph(testFilePath);
+        textToGraph.freeze();
+
+        // 固定种子选出查询用的单词对，并在单线程下计算参考结果
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            String word1 = words[random.nextInt(words.length)];
+            String word2 = words[random.nextInt(words.length)];
+            pairs.add(new String[]{word1, word2});
+            expectedBridges.add(new HashSet<>(textToGraph.queryBridgeWords(word1, word2, false)));
+            expectedDistances.add(textToGraph.shortestDistance(word1, word2));
+            expectedRanks.add(textToGraph.calPageRank(word1));
+            expectedTexts.add(generate(word1 + " " + word2 + " " + word1, i));
+        }
+    }
+
+    private String generate(String input, long seed) throws IOException {
+        StringWriter output = new StringWriter();
+        textToGraph.generateNewText(new StringReader(input), output, seed);
+        return output.toString();
+    }
+
+    // 测试用例1：冻结后不能再修改图
+    @Test
+    public void testFrozenGraphRejectsWrites() throws IOException {
+        assertTrue("图应处于冻结状态", textToGraph.isFrozen());
+        try {
+            textToGraph.addNode("newword");
+            fail("冻结后 addNode 应抛出 IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // 预期的异常
+        }
+        try {
+            textToGraph.appendText(new StringReader("more text"));
+            fail("冻结后 appendText 应抛出 IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // 预期的异常
+        }
+        assertEquals("冻结后的查询结果不应改变", expectedDistances.get(0).intValue(),
+                textToGraph.shortestDistance(pairs.get(0)[0], pairs.get(0)[1]));
+    }
+
+    // 测试用例2：1、2、4、8 个线程同时查询冻结的图，每个线程的结果都与单线程一致
+    @Test
+    public void testConcurrentQueriesMatchSingleThread() throws Exception {
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            assertEquals(threads + " 个线程并发查询时结果应与单线程一致", 0, runQueries(threads));
+        }
+    }
+
+    // 测试用例3：多个线程同时向构建器写入，封存后的边权精确且与顺序构建一致
+    @Test
+    public void testConcurrentBuilderExactCounts() throws Exception {
+        List<String> lines = java.nio.file.Files.readAllLines(java.nio.file.Paths.get(testFilePath));
+        TextToGraph expected = new TextToGraph();
+        for (String line : lines) {
+            expected.appendText(new StringReader(line));
+        }
+
+        ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        int threads = 4;
+        int repeats = 10000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                // 每个线程写入一部分文本，同时争用同一条边
+                for (int i = offset; i < lines.size(); i += threads) {
+                    builder.addText(new StringReader(lines.get(i)));
+                }
+                for (int i = 0; i < repeats; i++) {
+                    builder.addEdge("quuxhot", "quuxedge");
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        CompactGraph sealed = builder.seal().graph();
+        assertEquals("争用的边计数应精确", threads * repeats, sealed.weight(sealed.id("quuxhot"), sealed.id("quuxedge")));
+        CompactGraph reference = expected.graph();
+        assertEquals("节点数应一致", reference.size() + 2, sealed.size());
+        for (int u = 0; u < reference.size(); u++) {
+            int source = sealed.id(reference.word(u));
+            for (int e = reference.outStart(u); e < reference.outEnd(u); e++) {
+                assertEquals("边权应与顺序构建一致", reference.weight(e),
+                        sealed.weight(source, sealed.id(reference.word(reference.target(e)))));
+            }
+        }
+        try {
+            builder.addEdge("quuxhot", "quuxedge");
+            fail("封存后写入应抛出 IllegalStateException");
+        } catch (IllegalStateException expectedException) {
+            // 预期的异常
+        }
+    }
+
+    // 测试用例4：写入过程中封存，封存前成功返回的写入全部计入，之后的写入全部被拒绝
+    @Test
+    public void testSealDuringConcurrentWrites() throws Exception {
+        ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        int threads = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch running = new CountDownLatch(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                int accepted = 0;
+                running.countDown();
+                try {
+                    while (true) {
+                        builder.addEdge("quuxsource", "quuxtarget");
+                        accepted++;
+                    }
+                } catch (IllegalStateException sealed) {
+                    return accepted;
+                }
+            }));
+        }
+        running.await();
+        Thread.sleep(50);
+        CompactGraph sealed = builder.seal().graph();
+        int accepted = 0;
+        for (Future<Integer> future : futures) {
+            accepted += future.get();
+        }
+        pool.shutdown();
+        assertTrue("封存前应有写入", accepted > 0);
+        assertEquals("封存前成功的写入应全部计入", accepted,
+                sealed.weight(sealed.id("quuxsource"), sealed.id("quuxtarget")));
+    }
+
+    // 每个线程按不同的起点轮流执行全部四类查询，返回与参考结果不一致的次数
+    private int runQueries(int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 37;
+            futures.add(pool.submit(() -> {
+                ready.await();
+                for (int k = 0; k < QUERIES; k++) {
+                    int i = (k + offset) % QUERIES;
+                    String[] pair = pairs.get(i);
+                    boolean ok;
+                    switch (k % 4) {
+                        case 0:
+                            ok = expectedBridges.get(i).equals(textToGraph.queryBridgeWords(pair[0], pair[1], false));
+                            break;
+                        case 1:
+                            ok = expectedDistances.get(i) == textToGraph.shortestDistance(pair[0], pair[1]);
+                            break;
+                        case 2:
+                            ok = expectedRanks.get(i).equals(textToGraph.calPageRank(pair[0]));
+                            break;
+                        default:
+                            ok = expectedTexts.get(i).equals(generate(pair[0] + " " + pair[1] + " " + pair[0], i));
+                    }
+                    if (!ok) {
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        return failures.get();
+    }
+}
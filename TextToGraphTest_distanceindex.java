@@ -0,0 +1,162 @@
+import org.junit.Test;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class TextToGraphTest_distanceindex {
+
+    private final Path indexPath = Paths.get("./test/junit_distance.idx");
+
+    @After
+    public void tearDown() {
+        new File(indexPath.toString()).delete();
+    }
+
+    // 测试用例1：建立和加载得到的索引，距离和最短路径树都与逐个源点运行Dijkstra算法的结果相同
+    @Test
+    public void testBuildAndLoadMatchDijkstra() throws IOException {
+        CompactGraph graph = mixedGraph().graph();
+        int n = graph.size();
+        int[][] expected = new int[n][];
+        int dense = 0;
+        for (int source = 0; source < n; source++) {
+            // Dijkstra 的距离数组属于线程工作区，复制后再运行下一个源点
+            expected[source] = Arrays.copyOf(ShortestPathSearch.forCurrentThread().run(graph, source), n);
+            int reachable = 0;
+            for (int distance : expected[source]) {
+                reachable += distance == ShortestPathTree.UNREACHABLE ? 0 : 1;
+            }
+            dense += 2 * reachable >= n ? 1 : 0;
+        }
+        assertTrue("应同时有完整的行和压缩的行", dense > 0 && dense < n);
+
+        DistanceIndex built = DistanceIndex.build(graph, indexPath);
+        DistanceIndex loaded = DistanceIndex.load(graph, indexPath);
+        assertNotNull("刚建立的索引应可以加载", loaded);
+        for (DistanceIndex index : Arrays.asList(built, loaded)) {
+            assertSame(graph, index.graph());
+            for (int source = 0; source < n; source++) {
+                ShortestPathTree tree = index.tree(source);
+                ShortestPathTree reference = new ShortestPathTree(graph, source, expected[source]);
+                for (int target = 0; target < n; target++) {
+                    String word = graph.word(target);
+                    String pair = graph.word(source) + " -> " + word;
+                    assertEquals("距离应一致: " + pair, expected[source][target], index.distance(source, target));
+                    assertEquals("最短路径树的距离应一致: " + pair, reference.distance(word), tree.distance(word));
+                    assertEquals("路径条数应一致: " + pair, reference.countPaths(word), tree.countPaths(word));
+                    assertEquals("最短路径应一致: " + pair, pathSet(reference.paths(word, 50)), pathSet(tree.paths(word, 50)));
+                }
+            }
+        }
+    }
+
+    // 测试用例2：precomputeDistances 第二次运行时加载已有的索引，查询结果与不使用索引时相同
+    @Test
+    public void testPrecomputedQueriesMatchPlainQueries() throws IOException {
+        TextToGraph plain = mixedGraph();
+        TextToGraph indexed = mixedGraph();
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        try {
+            indexed.precomputeDistances(indexPath);
+            indexed.precomputeDistances(indexPath);
+        } finally {
+            System.setOut(originalOut);
+        }
+        String printed = output.toString("UTF-8");
+        assertTrue("第一次应建立索引", printed.contains("正在计算全源最短距离索引"));
+        assertTrue("第二次应加载索引", printed.contains("已加载全源最短距离索引"));
+
+        CompactGraph graph = plain.graph();
+        for (int source = 0; source < graph.size(); source++) {
+            for (int target = 0; target < graph.size(); target++) {
+                String word1 = graph.word(source);
+                String word2 = graph.word(target);
+                assertEquals(plain.shortestDistance(word1, word2), indexed.shortestDistance(word1, word2));
+            }
+        }
+        assertEquals(-1, indexed.shortestDistance("missing", graph.word(0)));
+    }
+
+    // 测试用例3：图发生变化、版本不符、文件被截断或行偏移不合法时 load 返回 null
+    @Test
+    public void testLoadRejectsStaleOrDamagedIndex() throws IOException {
+        TextToGraph textToGraph = mixedGraph();
+        CompactGraph graph = textToGraph.graph();
+        DistanceIndex.build(graph, indexPath);
+        byte[] bytes = Files.readAllBytes(indexPath);
+
+        textToGraph.addEdge(graph.word(0), graph.word(1));
+        assertNull("已有的边权值改变后索引应失效", DistanceIndex.load(textToGraph.graph(), indexPath));
+        textToGraph.addEdge("newword", graph.word(0));
+        assertNull("增加节点后索引应失效", DistanceIndex.load(textToGraph.graph(), indexPath));
+        assertNotNull("原来的图仍可加载", DistanceIndex.load(graph, indexPath));
+
+        assertNull("魔数不符", loadModified(graph, bytes, 0, 0x12345678));
+        assertNull("版本不符", loadModified(graph, bytes, 4, 1));
+        assertNull("节点数不符", loadModified(graph, bytes, 8, graph.size() + 1));
+        assertNull("第一行的偏移不为 0", loadModified(graph, bytes, 32 + 4, 1));
+        // 第二行的偏移改为大于第三行，行长度为负
+        ByteBuffer offsets = ByteBuffer.wrap(bytes.clone());
+        offsets.putLong(32 + 8, offsets.getLong(32 + 16) + 1);
+        Files.write(indexPath, offsets.array());
+        assertNull("行偏移不单调", DistanceIndex.load(graph, indexPath));
+
+        for (int length : new int[]{0, 16, 32, 32 + 8 * graph.size(), bytes.length - 4, bytes.length - 1}) {
+            Files.write(indexPath, Arrays.copyOf(bytes, length));
+            assertNull("截断为 " + length + " 个字节", DistanceIndex.load(graph, indexPath));
+        }
+        Files.write(indexPath, Arrays.copyOf(bytes, bytes.length + 4));
+        assertNull("文件末尾多出数据", DistanceIndex.load(graph, indexPath));
+
+        Files.delete(indexPath);
+        assertNull("文件不存在", DistanceIndex.load(graph, indexPath));
+    }
+
+    private DistanceIndex loadModified(CompactGraph graph, byte[] bytes, int position, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+        buffer.putInt(position, value);
+        Files.write(indexPath, buffer.array());
+        return DistanceIndex.load(graph, indexPath);
+    }
+
+    // 互相可达的随机文本（完整的行），加上一条只能向后走的链（可达节点少，压缩的行）和一个孤立的环
+    private static TextToGraph mixedGraph() throws IOException {
+        Random random = new Random(21);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            text.append("w").append((char) ('a' + random.nextInt(20))).append(' ');
+        }
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(text.toString()));
+        String previous = "wa";
+        for (int i = 0; i < 30; i++) {
+            String next = "chain" + (char) ('a' + i / 26) + (char) ('a' + i % 26);
+            textToGraph.addEdge(previous, next);
+            previous = next;
+        }
+        textToGraph.addEdge("islandone", "islandtwo");
+        textToGraph.addEdge("islandtwo", "islandone");
+        return textToGraph;
+    }
+
+    @SuppressWarnings("unchecked") // 路径列表的第一个元素是单词列表
+    private static Set<List<String>> pathSet(List<List<Object>> paths) {
+        Set<List<String>> result = new HashSet<>();
+        for (List<Object> path : paths) {
+            result.add(new ArrayList<>((List<String>) path.get(0)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class TextToGraphTest_generate {
+
+    private final String corpusPath = "./test/Cursed Be The Treasure.txt";
+    private final Path inputPath = Paths.get("./test/junit_generate_input.txt");
+    private final Path outputPath = Paths.get("./test/junit_generate_output.txt");
+    private TextToGraph textToGraph;
+
+    @Before
+    public void setUp() throws IOException {
+        textToGraph = new TextToGraph();
+        textToGraph.buildDirectedGraph(corpusPath);
+        Files.write(inputPath, "The treasure of the old house was cursed, and the man knew it.\nSeek the gold!"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        new File(inputPath.toString()).delete();
+        new File(outputPath.toString()).delete();
+    }
+
+    // 测试用例1：输入文件不在当前目录或 test 目录下时抛出 SecurityException，且不创建输出文件
+    @Test
+    public void testInputOutsideAllowedDirectoriesIsRejected() throws IOException {
+        Path outside = Files.createTempFile("junit_generate", ".txt");
+        try {
+            Files.write(outside, "the treasure".getBytes(StandardCharsets.UTF_8));
+            try {
+                textToGraph.generateNewTextFile(outside, outputPath, 1);
+                fail("目录之外的输入文件应被拒绝");
+            } catch (SecurityException expected) {
+                // 与 buildDirectedGraph 相同的安全检查
+            }
+            assertFalse("被拒绝时不应创建输出文件", Files.exists(outputPath));
+        } finally {
+            Files.delete(outside);
+        }
+        try {
+            textToGraph.generateNewTextFile(Paths.get("./test/junit_missing.txt"), outputPath, 1);
+            fail("不存在的输入文件应抛出 IOException");
+        } catch (IOException expected) {
+            // 文件不存在
+        }
+        assertFalse(Files.exists(outputPath));
+    }
+
+    // 测试用例2：相同的图、输入和种子总是得到相同的输出，与从 Reader 生成的结果相同
+    @Test
+    public void testSeededOutputIsDeterministic() throws IOException {
+        long written = textToGraph.generateNewTextFile(inputPath, outputPath, 42);
+        String first = new String(Files.readAllBytes(outputPath), StandardCharsets.UTF_8);
+        assertEquals("返回值应为写出的单词数", written, first.split(" ").length);
+        assertEquals(written, textToGraph.generateNewTextFile(inputPath, outputPath, 42));
+        assertEquals("相同的种子应得到相同的输出", first, new String(Files.readAllBytes(outputPath), StandardCharsets.UTF_8));
+
+        StringWriter writer = new StringWriter();
+        textToGraph.generateNewText(new StringReader(new String(Files.readAllBytes(inputPath), StandardCharsets.UTF_8)),
+                writer, 42);
+        assertEquals("应与从 Reader 生成的结果相同", first, writer.toString());
+        assertTrue("输入的单词应按顺序保留", first.startsWith("the "));
+        assertTrue(first.endsWith(" gold"));
+        assertTrue("语料中应能找到桥接词", written > 16);
+
+        // 不同的种子选择不同的桥接词
+        boolean differs = false;
+        for (long seed = 43; seed < 53 && !differs; seed++) {
+            textToGraph.generateNewTextFile(inputPath, outputPath, seed);
+            differs = !first.equals(new String(Files.readAllBytes(outputPath), StandardCharsets.UTF_8));
+        }
+        assertTrue("不同的种子应得到不同的输出", differs);
+    }
+
+    // 测试用例3：输入跨越多个分块时，并行生成与顺序生成在相同的种子下输出完全相同
+    @Test
+    public void testParallelMatchesSequentialAcrossChunks() throws IOException {
+        String input = new String(Files.readAllBytes(Paths.get(corpusPath)), StandardCharsets.UTF_8);
+        for (long seed : new long[]{0, 7, -123456789L}) {
+            StringWriter sequential = new StringWriter();
+            long expected = textToGraph.generateNewText(new StringReader(input), sequential, seed, false);
+            StringWriter parallel = new StringWriter();
+            long written = textToGraph.generateNewText(new StringReader(input), parallel, seed, true);
+            assertTrue("输入应跨越多个分块", expected > 4L * TextToGraph.GENERATE_CHUNK_WORDS);
+            assertEquals("写出的单词数应相同", expected, written);
+            assertEquals("种子 " + seed + " 的输出应相同", sequential.toString(), parallel.toString());
+        }
+    }
+}
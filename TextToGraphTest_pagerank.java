@@ -0,0 +1,222 @@
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.*;
+
+public class TextToGraphTest_pagerank {
+
+    private final PrintStream originalOut = System.out;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // PageRank 每次计算都会打印迭代次数，测试期间不输出，只用来判断是否重新计算了
+    @Before
+    public void setUp() {
+        System.setOut(new PrintStream(output));
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    // 测试用例1：借助反向邻接表计算的PageRank与原先逐个扫描所有节点的实现结果相同
+    @Test
+    public void testRanksMatchOriginalImplementation() throws IOException {
+        Random random = new Random(3);
+        for (int round = 0; round < 10; round++) {
+            TextToGraph textToGraph = new TextToGraph();
+            textToGraph.appendText(new StringReader(randomText(random, 5 + random.nextInt(60), 50 + random.nextInt(400))));
+            CompactGraph graph = textToGraph.graph();
+            Map<String, Double> expected = originalPageRank(graph);
+            Map<String, Double> ranks = textToGraph.calAllPageRanks();
+            assertEquals(expected.keySet(), ranks.keySet());
+            for (String word : expected.keySet()) {
+                assertEquals("PageRank值应一致: " + word, expected.get(word), ranks.get(word), 1e-12);
+                assertEquals(expected.get(word), textToGraph.calPageRank(word), 1e-12);
+            }
+        }
+    }
+
+    // 测试用例2：缓存的PageRank在 addEdge、appendText 之后失效，结果与重新构建的图相同
+    @Test
+    public void testCacheIsInvalidatedAfterMutation() throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader("the quick brown fox jumps over the lazy dog"));
+        double before = textToGraph.calPageRank("fox");
+        int computed = computations();
+        textToGraph.calAllPageRanks();
+        textToGraph.topPageRanks(3);
+        assertEquals("图不变时应复用缓存", computed, computations());
+
+        textToGraph.addEdge("dog", "fox");
+        TextToGraph rebuilt = new TextToGraph();
+        rebuilt.appendText(new StringReader("the quick brown fox jumps over the lazy dog"));
+        rebuilt.addEdge("dog", "fox");
+        assertNotEquals("addEdge 之后应重新计算", before, textToGraph.calPageRank("fox"), 1e-9);
+        assertEquals(rebuilt.calAllPageRanks(), textToGraph.calAllPageRanks());
+        assertEquals("两个实例各应只计算一次", computed + 2, computations());
+
+        textToGraph.appendText(new StringReader("fox and dog"), true);
+        rebuilt.appendText(new StringReader("fox and dog"), true);
+        assertTrue("appendText 之后应包含新单词", textToGraph.calAllPageRanks().containsKey("and"));
+        assertEquals(rebuilt.calAllPageRanks(), textToGraph.calAllPageRanks());
+    }
+
+    // 测试用例3：开启热启动后追加文本，结果与从头计算的差别在收敛阈值以内
+    @Test
+    public void testWarmStartStaysWithinEpsilon() throws IOException {
+        Random random = new Random(5);
+        String first = randomText(random, 200, 5000);
+        String second = randomText(random, 260, 300);
+        TextToGraph warm = new TextToGraph();
+        warm.setPageRankWarmStart(true);
+        warm.appendText(new StringReader(first));
+        warm.calAllPageRanks();
+        warm.appendText(new StringReader(second), true);
+        TextToGraph cold = new TextToGraph();
+        cold.appendText(new StringReader(first));
+        cold.appendText(new StringReader(second), true);
+
+        Map<String, Double> warmRanks = warm.calAllPageRanks();
+        Map<String, Double> coldRanks = cold.calAllPageRanks();
+        assertEquals(coldRanks.keySet(), warmRanks.keySet());
+        double total = 0.0;
+        double difference = 0.0;
+        for (String word : coldRanks.keySet()) {
+            total += warmRanks.get(word);
+            difference += Math.abs(warmRanks.get(word) - coldRanks.get(word));
+        }
+        assertEquals("PageRank值之和应为1", 1.0, total, 1e-9);
+        assertTrue("与从头计算的差别应在收敛阈值附近: " + difference, difference < 0.001);
+    }
+
+    // 测试用例4：topPageRanks 按PageRank值从高到低排列，值相同时编号小（先出现）的单词在前，结果可复现
+    @Test
+    public void testTopPageRanksOrderAndTies() throws IOException {
+        TextToGraph cycle = new TextToGraph();
+        // 环上每个节点的PageRank值都相同
+        cycle.appendText(new StringReader("delta alpha charlie bravo delta"));
+        assertEquals(Arrays.asList("delta", "alpha"), words(cycle.topPageRanks(2)));
+        assertEquals(Arrays.asList("delta", "alpha", "charlie", "bravo"), words(cycle.topPageRanks(10)));
+        assertTrue(cycle.topPageRanks(0).isEmpty());
+
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(randomText(new Random(9), 40, 500)));
+        Map<String, Double> ranks = textToGraph.calAllPageRanks();
+        List<String> expected = new ArrayList<>(ranks.keySet());
+        List<String> order = new ArrayList<>(ranks.keySet());
+        expected.sort((a, b) -> ranks.get(a).equals(ranks.get(b))
+                ? Integer.compare(order.indexOf(a), order.indexOf(b)) : Double.compare(ranks.get(b), ranks.get(a)));
+        for (int k : new int[]{1, 5, 17, ranks.size(), ranks.size() + 3}) {
+            List<Map.Entry<String, Double>> top = textToGraph.topPageRanks(k);
+            assertEquals("前 " + k + " 个单词应一致", expected.subList(0, Math.min(k, expected.size())), words(top));
+            for (Map.Entry<String, Double> entry : top) {
+                assertEquals(ranks.get(entry.getKey()), entry.getValue());
+            }
+            assertEquals("结果应可复现", words(top), words(textToGraph.topPageRanks(k)));
+        }
+    }
+
+    // 测试用例5：分成多个块并行计算的PageRank与顺序计算的结果在收敛阈值以内，且与线程调度无关
+    @Test
+    public void testParallelMatchesSequentialAcrossBlocks() throws IOException {
+        String text = randomText(new Random(13), 676, 200000);
+        TextToGraph sequential = new TextToGraph();
+        sequential.appendText(new StringReader(text));
+        CompactGraph graph = sequential.graph();
+        assertTrue("图应大到足以分成多个块",
+                graph.size() + graph.edgeCount() > 4L * TextToGraph.PAGE_RANK_BLOCK_WORK);
+
+        // PageRank缓存与是否并行无关，所以每种方式使用各自的实例
+        Map<String, Double> expected = sequential.calAllPageRanks(false);
+        Map<String, Double> first = parallelRanks(text);
+        Map<String, Double> second = parallelRanks(text);
+        assertEquals("并行计算的结果应可复现", first, second);
+        for (String word : expected.keySet()) {
+            assertEquals("并行与顺序计算的结果应一致: " + word, expected.get(word), first.get(word), 1e-9);
+        }
+        TextToGraph top = new TextToGraph();
+        top.appendText(new StringReader(text));
+        assertEquals(words(sequential.topPageRanks(20)), words(top.topPageRanks(20, true)));
+    }
+
+    private static Map<String, Double> parallelRanks(String text) throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(text));
+        return textToGraph.calAllPageRanks(true);
+    }
+
+    // 到目前为止计算PageRank的次数
+    private int computations() {
+        return output.toString().split("PageRank算法在第", -1).length - 1;
+    }
+
+    private static List<String> words(List<Map.Entry<String, Double>> entries) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : entries) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    // 原先的实现：以邻接表为准，每个节点都扫描所有节点的出边查找指向它的节点
+    private static Map<String, Double> originalPageRank(CompactGraph graph) {
+        Map<String, Map<String, Integer>> directedGraph = new LinkedHashMap<>();
+        for (int u = 0; u < graph.size(); u++) {
+            Map<String, Integer> edges = new HashMap<>();
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                edges.put(graph.word(graph.target(e)), graph.weight(e));
+            }
+            directedGraph.put(graph.word(u), edges);
+        }
+        int n = directedGraph.size();
+        double d = 0.85;
+        Map<String, Double> pageRank = new HashMap<>();
+        for (String node : directedGraph.keySet()) {
+            pageRank.put(node, 1.0 / n);
+        }
+        for (int iter = 0; iter < 100; iter++) {
+            double sinkPR = 0;
+            for (Map.Entry<String, Map<String, Integer>> entry : directedGraph.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    sinkPR += pageRank.get(entry.getKey());
+                }
+            }
+            Map<String, Double> newPageRank = new HashMap<>();
+            double diff = 0.0;
+            for (String node : directedGraph.keySet()) {
+                double sum = 0.0;
+                for (Map.Entry<String, Map<String, Integer>> source : directedGraph.entrySet()) {
+                    if (source.getValue().containsKey(node)) {
+                        sum += pageRank.get(source.getKey()) / source.getValue().size();
+                    }
+                }
+                sum += sinkPR / n;
+                double newRank = (1 - d) / n + d * sum;
+                newPageRank.put(node, newRank);
+                diff += Math.abs(newRank - pageRank.get(node));
+            }
+            pageRank = newPageRank;
+            if (diff < 0.0001) {
+                break;
+            }
+        }
+        return pageRank;
+    }
+
+    // 少量单词组成的随机文本，包含出度为0的节点和自环
+    private static String randomText(Random random, int vocabulary, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int word = random.nextInt(vocabulary);
+            text.append("w").append((char) ('a' + word % 26)).append((char) ('a' + word / 26)).append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.Test;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+public class TextToGraphTest_parallelload {
+
+    // 并行加载每 1MB 至少切出一个分块（至少 4 个分块，与线程数无关），文件需要有几 MB 才能覆盖分块边界
+    private static final long FILE_BYTES = 9L << 19;
+    private final String testFilePath = "./test/junit_parallel_load.txt";
+
+    @After
+    public void tearDown() {
+        new File(testFilePath).delete();
+    }
+
+    // 测试用例1：多个分块的文件并行加载后，单词、编号、边、权值、指纹和返回值都与顺序构建相同
+    @Test
+    public void testParallelLoadMatchesSequentialAcrossChunks() throws IOException {
+        writeRandomText(new Random(18), true);
+        assertTrue("文件应大到足以切成多个分块", new File(testFilePath).length() >= FILE_BYTES);
+
+        TextToGraph sequential = new TextToGraph();
+        String[] expectedWords = sequential.buildDirectedGraph(testFilePath);
+        TextToGraph parallel = new TextToGraph();
+        String[] words = parallel.buildDirectedGraph(testFilePath, true);
+
+        assertEquals("以分隔符开头时返回值的第一个元素应为空串", "", expectedWords[0]);
+        assertArrayEquals("返回的单词应一致", expectedWords, words);
+        assertSameGraph(sequential.graph(), parallel.graph());
+    }
+
+    // 测试用例2：向已有的图并行加载文件时，与顺序追加的结果相同
+    @Test
+    public void testParallelLoadIntoExistingGraph() throws IOException {
+        writeRandomText(new Random(19), false);
+
+        TextToGraph sequential = new TextToGraph();
+        sequential.appendText(new StringReader("zebra quick the lazy"));
+        String[] expectedWords = sequential.buildDirectedGraph(testFilePath);
+        TextToGraph parallel = new TextToGraph();
+        parallel.appendText(new StringReader("zebra quick the lazy"));
+        String[] words = parallel.buildDirectedGraph(testFilePath, true);
+
+        assertArrayEquals("返回的单词应一致", expectedWords, words);
+        assertSameGraph(sequential.graph(), parallel.graph());
+    }
+
+    private static void assertSameGraph(CompactGraph expected, CompactGraph actual) {
+        assertEquals("单词数应一致", expected.size(), actual.size());
+        assertEquals("边数应一致", expected.edgeCount(), actual.edgeCount());
+        for (int u = 0; u < expected.size(); u++) {
+            assertEquals("单词编号应一致", expected.word(u), actual.word(u));
+            assertEquals("出边应一致: " + expected.word(u), expected.outEnd(u) - expected.outStart(u),
+                    actual.outEnd(u) - actual.outStart(u));
+            for (int k = 0; k < expected.outEnd(u) - expected.outStart(u); k++) {
+                int e = expected.outStart(u) + k;
+                int f = actual.outStart(u) + k;
+                assertEquals("边的终点应一致: " + expected.word(u), expected.target(e), actual.target(f));
+                assertEquals("边的权值应一致: " + expected.word(u), expected.weight(e), actual.weight(f));
+            }
+        }
+        assertEquals("图指纹应一致", expected.fingerprint(), actual.fingerprint());
+    }
+
+    // 随机文本：大小写混合的单词、标点和数字组成的分隔符、非 ASCII 字符，偶尔出现很长的单词或很长的分隔符
+    private void writeRandomText(Random random, boolean leadingGap) throws IOException {
+        String[] separators = {" ", "  ", ", ", ". ", "\n", "\r\n", " 123 ", " -- ", " café ", " 中文 ", "\t"};
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(testFilePath), "UTF-8"))) {
+            long written = 0;
+            if (leadingGap) {
+                writer.write(" ,42 ");
+            }
+            while (written < FILE_BYTES) {
+                StringBuilder word = new StringBuilder();
+                int length = random.nextInt(50) == 0 ? 200 + random.nextInt(400) : 1 + random.nextInt(3);
+                for (int i = 0; i < length; i++) {
+                    char letter = (char) ('a' + random.nextInt(i < 3 ? 8 : 26));
+                    word.append(random.nextInt(10) == 0 ? Character.toUpperCase(letter) : letter);
+                }
+                String separator = random.nextInt(100) == 0
+                        ? String.join("", Collections.nCopies(100 + random.nextInt(1000), " "))
+                        : separators[random.nextInt(separators.length)];
+                writer.write(word.toString());
+                writer.write(separator);
+                written += word.length() + separator.length();
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class TextToGraphTest_render {
+
+    private TextToGraph textToGraph;
+    private final String testFilePath = "./test/junit_render.txt";
+    private final String dotFilePath1 = "./graph/directed_graph_shortest9001.dot";
+    private final String dotFilePath2 = "./graph/directed_graph_shortest9002.dot";
+
+    // 记录调用并可以暂停的桩渲染器，不启动 Graphviz
+    private final List<String> renderedImages = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final DotRenderer stubRenderer = (dotFilePath, imageFilePath) -> {
+        renderedImages.add(imageFilePath);
+        started.countDown();
+        release.await();
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        new File("./graph").mkdirs();
+        try (PrintWriter writer = new PrintWriter(new File(testFilePath), "UTF-8")) {
+            writer.println("the quick brown fox jumps over the lazy dog");
+            writer.println("the dog barks at the fox");
+        }
+        textToGraph = new TextToGraph();
+        textToGraph.buildDirectedGraph(testFilePath);
+    }
+
+    @After
+    public void tearDown() {
+        new File(testFilePath).delete();
+        new File(dotFilePath1).delete();
+        new File(dotFilePath2).delete();
+        for (int i = 0; i < 100; i++) {
+            new File(dotFilePath1 + i).delete();
+        }
+    }
+
+    // 测试用例1：渲染在后台进行，查询不等待渲染器；尚未开始的同一图像只渲染一次
+    @Test
+    public void testRenderingIsAsynchronousAndCoalesced() throws Exception {
+        RenderQueue queue = new RenderQueue(stubRenderer, 1, 8);
+        textToGraph.setRenderQueue(queue);
+
+        assertNotNull("应找到最短路径", textToGraph.calcShortestPath("the", "fox", 9001, "the"));
+        assertTrue("渲染应在后台开始", started.await(10, TimeUnit.SECONDS));
+        // 唯一的工作线程被占用，以下三次查询都在等待同一个图像文件
+        assertNotNull(textToGraph.calcShortestPath("quick", "dog", 9002, "the"));
+        assertNotNull(textToGraph.calcShortestPath("quick", "dog", 9002, "the"));
+        assertNotNull(textToGraph.calcShortestPath("brown", "lazy", 9002, "the"));
+        assertEquals("渲染器被阻塞时查询仍应完成", 1, renderedImages.size());
+
+        release.countDown();
+        queue.close();
+        assertEquals("重复提交的渲染应被合并", Arrays.asList(
+                "./graph/directed_graph_shortest9001.png", "./graph/directed_graph_shortest9002.png"), renderedImages);
+        assertTrue("DOT 文件应已生成", new File(dotFilePath2).exists());
+        // 合并后以最后一次提交的路径为准
+        String dot = new String(java.nio.file.Files.readAllBytes(new File(dotFilePath2).toPath()), "UTF-8");
+        assertTrue("应使用最后一次提交的内容", dot.contains("\"brown\" -> \"fox\" [color="));
+    }
+
+    // 测试用例2：DOT 内容与上一次成功渲染相同时跳过
+    @Test
+    public void testDuplicateRenderIsSkipped() throws Exception {
+        release.countDown();
+        RenderQueue queue = new RenderQueue(stubRenderer, 2, 8);
+        assertTrue(queue.submit(dotFilePath1, "a.png", dotContent("first")).get());
+        assertFalse("相同内容应跳过", queue.submit(dotFilePath1, "a.png", dotContent("first")).get());
+        assertTrue("内容变化后应重新渲染", queue.submit(dotFilePath1, "a.png", dotContent("second")).get());
+        queue.close();
+        assertEquals(Arrays.asList("a.png", "a.png"), renderedImages);
+    }
+
+    // 测试用例3：关闭渲染后只计算路径，不生成任何文件
+    @Test
+    public void testRenderingDisabled() throws Exception {
+        release.countDown();
+        RenderQueue queue = new RenderQueue(stubRenderer, 1, 8);
+        textToGraph.setRenderQueue(queue);
+        textToGraph.setRenderingEnabled(false);
+
+        List<List<Object>> paths = textToGraph.calcShortestPath("the", "fox", 9001, "the");
+        assertNotNull("关闭渲染不应影响路径计算", paths);
+        queue.close();
+        assertTrue("不应调用渲染器", renderedImages.isEmpty());
+        assertFalse("不应生成 DOT 文件", new File(dotFilePath1).exists());
+    }
+
+    // 测试用例4：限定绘制范围后只写出最短路径附近的子图，路径边不受边数上限影响
+    @Test
+    public void testRenderScopeLimitsSubgraph() throws Exception {
+        release.countDown();
+        RenderQueue queue = new RenderQueue(stubRenderer, 1, 8);
+        textToGraph.setRenderQueue(queue);
+        textToGraph.setRenderScope(0, 1);
+
+        assertNotNull(textToGraph.calcShortestPath("quick", "fox", 9001, "the"));
+        queue.close();
+        String dot = new String(java.nio.file.Files.readAllBytes(new File(dotFilePath1).toPath()), "UTF-8");
+        assertTrue("应包含路径边", dot.contains("\"quick\" -> \"brown\" [label=\"1\"];"));
+        assertTrue("应包含路径边", dot.contains("\"brown\" -> \"fox\" [label=\"1\"];"));
+        assertFalse("不应包含范围外的边", dot.contains("barks"));
+        assertFalse("根节点不在子图中时不应标记", dot.contains("[fillcolor=red]"));
+    }
+
+    // 测试用例5：队列已满时 submit 阻塞而不放弃任何渲染，合并的提交不阻塞，提交方不会自己渲染；关闭后拒绝新的渲染
+    @Test
+    public void testFullQueueBlocksAndClosedQueueRejects() throws Exception {
+        RenderQueue queue = new RenderQueue(stubRenderer, 1, 1);
+        CompletableFuture<Boolean> running = queue.submit(dotFilePath1, "a.png", dotContent("a"));
+        assertTrue("渲染应在后台开始", started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> waiting = queue.submit(dotFilePath2, "b.png", dotContent("b"));
+        assertSame("合并到等待中的任务时不应阻塞", waiting, queue.submit(dotFilePath2, "b.png", dotContent("b2")));
+
+        // 队列已满，另一个图像的提交应阻塞到 b.png 开始执行
+        CompletableFuture<CompletableFuture<Boolean>> blocked = CompletableFuture.supplyAsync(
+                () -> queue.submit(dotFilePath1, "c.png", dotContent("c")));
+        Thread.sleep(200);
+        assertFalse("队列已满时 submit 应阻塞", blocked.isDone());
+        assertFalse("等待中的渲染不应被放弃", waiting.isDone());
+        assertEquals("提交方不应调用渲染器", Collections.singletonList("a.png"), renderedImages);
+
+        release.countDown();
+        assertTrue(running.get());
+        assertTrue(waiting.get());
+        assertTrue("阻塞的提交应在有名额后完成", blocked.get(10, TimeUnit.SECONDS).get());
+        queue.close();
+        assertEquals("所有提交的图像都应渲染", Arrays.asList("a.png", "b.png", "c.png"), renderedImages);
+        try {
+            queue.submit(dotFilePath1, "d.png", dotContent("d")).get();
+            fail("关闭后提交的渲染应被拒绝");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(3, renderedImages.size());
+
+        // 连续提交远多于队列容量的不同图像，每一个都被渲染
+        RenderQueue small = new RenderQueue(stubRenderer, 2, 2);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(small.submit(dotFilePath1 + i, "image" + i + ".png", dotContent("x" + i)));
+        }
+        small.close();
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        assertEquals(103, renderedImages.size());
+    }
+
+    // 测试用例6：只改写标记路径部分的 DOT 文件与完整写出的内容逐字节相同（路径变短、根节点变化、文件被外部修改、图变化之后），
+    // 渲染队列按写出时计算的摘要跳过内容相同的渲染
+    @Test
+    public void testDotFileMatchesUncachedOutput() throws Exception {
+        Path dot = new File(dotFilePath1).toPath();
+        List<List<Object>> longPaths = Arrays.asList(
+                Arrays.<Object>asList(Arrays.asList("the", "quick", "brown", "fox"), 3),
+                Arrays.<Object>asList(Arrays.asList("the", "lazy", "dog"), 2));
+        List<List<Object>> shortPaths = Collections.singletonList(Arrays.<Object>asList(Arrays.asList("the", "fox"), 1));
+
+        textToGraph.createDotFile(dotFilePath1, longPaths, "the");
+        assertArrayEquals(uncached(longPaths, "the"), Files.readAllBytes(dot));
+        textToGraph.createDotFile(dotFilePath1, shortPaths, "the");
+        assertArrayEquals("路径变短后应截去多余的内容", uncached(shortPaths, "the"), Files.readAllBytes(dot));
+        textToGraph.createDotFile(dotFilePath1, null, "the");
+        assertArrayEquals(uncached(null, "the"), Files.readAllBytes(dot));
+        textToGraph.createDotFile(dotFilePath1, longPaths, "fox");
+        assertArrayEquals("根节点变化后应整体重写", uncached(longPaths, "fox"), Files.readAllBytes(dot));
+        Files.write(dot, "digraph G {}".getBytes(StandardCharsets.UTF_8));
+        textToGraph.createDotFile(dotFilePath1, shortPaths, "fox");
+        assertArrayEquals("文件被外部修改后应整体重写", uncached(shortPaths, "fox"), Files.readAllBytes(dot));
+        textToGraph.appendText(new StringReader("the fox runs away"), false);
+        textToGraph.createDotFile(dotFilePath1, shortPaths, "fox");
+        assertArrayEquals("图变化后应整体重写", uncached(shortPaths, "fox"), Files.readAllBytes(dot));
+
+        // 唯一的工作线程依次执行，每次查询后提交一个标记任务并等待它完成
+        List<String> renderedDots = Collections.synchronizedList(new ArrayList<>());
+        RenderQueue queue = new RenderQueue((dotFilePath, imageFilePath) -> {
+            if (dotFilePath.equals(dotFilePath1)) {
+                renderedDots.add(new String(Files.readAllBytes(dot), StandardCharsets.UTF_8));
+            }
+        }, 1, 8);
+        textToGraph.setRenderQueue(queue);
+        String[][] queries = {{"the", "fox"}, {"the", "fox"}, {"quick", "dog"}, {"the", "fox"}};
+        List<String> expected = new ArrayList<>();
+        for (String[] query : queries) {
+            List<List<Object>> paths = textToGraph.calcShortestPath(query[0], query[1], 9001, "the");
+            queue.submit(dotFilePath2, "marker.png", dotContent(query[0] + query[1])).get();
+            assertArrayEquals(uncached(paths, "the"), Files.readAllBytes(dot));
+            String content = new String(uncached(paths, "the"), StandardCharsets.UTF_8);
+            if (expected.isEmpty() || !expected.get(expected.size() - 1).equals(content)) {
+                expected.add(content);
+            }
+        }
+        queue.close();
+        assertEquals("内容相同的第二次查询应跳过，其余的都应渲染", expected, renderedDots);
+        assertEquals(3, renderedDots.size());
+    }
+
+    // 按定义完整生成 DOT 文件的内容，不经过任何缓存
+    private byte[] uncached(List<List<Object>> shortestPaths, String root) {
+        CompactGraph graph = textToGraph.graph();
+        String newline = System.lineSeparator();
+        StringBuilder dot = new StringBuilder();
+        dot.append("digraph G {").append(newline);
+        dot.append("  rankdir=LR;").append(newline);
+        dot.append("  node [shape=circle, style=filled, fillcolor=white];").append(newline);
+        if (root != null) {
+            dot.append("  \"").append(root).append("\" [fillcolor=red];").append(newline);
+        }
+        for (int u = 0; u < graph.size(); u++) {
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                dot.append("  \"").append(graph.word(u)).append("\" -> \"").append(graph.word(graph.target(e)))
+                        .append("\" [label=\"").append(graph.weight(e)).append("\"];").append(newline);
+            }
+        }
+        String[] colors = {"blue", "green", "purple", "orange", "brown", "pink", "cyan", "magenta", "yellow", "gray"};
+        if (shortestPaths != null) {
+            for (int i = 0; i < shortestPaths.size(); i++) {
+                @SuppressWarnings("unchecked")
+                List<String> path = (List<String>) shortestPaths.get(i).get(0);
+                String color = colors[i % colors.length];
+                for (String node : path) {
+                    dot.append("  \"").append(node).append("\" [fillcolor=\"").append(color).append("20\"];").append(newline);
+                }
+                for (int j = 0; j < path.size() - 1; j++) {
+                    dot.append("  \"").append(path.get(j)).append("\" -> \"").append(path.get(j + 1))
+                            .append("\" [color=\"").append(color).append("\", penwidth=2.0];").append(newline);
+                }
+            }
+        }
+        dot.append("}").append(newline);
+        return dot.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static RenderQueue.DotWriter dotContent(String content) {
+        return path -> {
+            byte[] bytes = content.getBytes("UTF-8");
+            java.nio.file.Files.write(new File(path).toPath(), bytes);
+            return RenderQueue.newDigest().digest(bytes);
+        };
+    }
+}
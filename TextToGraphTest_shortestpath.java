@@ -0,0 +1,253 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class TextToGraphTest_shortestpath {
+
+    private static final int GRAPHS = 30; // 随机生成的图的个数
+    private static final int PATH_LIMIT = 5000; // 路径条数不超过该值时才逐条比较
+
+    // 测试用例1：提前终止的单向搜索和双向搜索，与完整的单源最短路径树给出相同的距离、路径条数和路径集合
+    @Test
+    public void testPointToPointSearchesMatchFullTree() throws IOException {
+        Random random = new Random(7);
+        int compared = 0;
+        for (int round = 0; round < GRAPHS; round++) {
+            CompactGraph graph = randomGraph(random);
+            int n = graph.size();
+            for (int source = 0; source < n; source++) {
+                // 完整树的距离数组属于线程工作区，先记录下全部结果再运行其他搜索
+                ShortestPathTree tree = new ShortestPathTree(graph, source,
+                        ShortestPathSearch.forCurrentThread().run(graph, source));
+                int[] distances = new int[n];
+                long[] counts = new long[n];
+                List<Set<List<String>>> pathSets = new ArrayList<>();
+                for (int target = 0; target < n; target++) {
+                    String word = graph.word(target);
+                    distances[target] = tree.distance(word);
+                    counts[target] = tree.countPaths(word);
+                    pathSets.add(counts[target] <= PATH_LIMIT ? pathSet(tree.paths(word)) : null);
+                }
+
+                for (int target = 0; target < n; target++) {
+                    String word = graph.word(target);
+                    String pair = graph.word(source) + " -> " + word;
+
+                    BidirectionalSearch search = BidirectionalSearch.run(graph, source, target);
+                    assertEquals("双向搜索的距离应一致: " + pair, distances[target], search.length());
+                    assertEquals("双向搜索的路径条数应一致: " + pair, counts[target], search.countPaths());
+                    if (pathSets.get(target) != null) {
+                        assertEquals("双向搜索的路径集合应一致: " + pair,
+                                pathSets.get(target), pathSet(search.paths(Integer.MAX_VALUE)));
+                    }
+
+                    ShortestPathTree early = new ShortestPathTree(graph, source,
+                            ShortestPathSearch.forCurrentThread().run(graph, source, target));
+                    assertEquals("提前终止时目标的距离应一致: " + pair, distances[target], early.distance(word));
+                    assertEquals("提前终止时路径条数应一致: " + pair, counts[target], early.countPaths(word));
+                    if (pathSets.get(target) != null) {
+                        assertEquals("提前终止时路径集合应一致: " + pair, pathSets.get(target), pathSet(early.paths(word)));
+                    }
+                    compared++;
+                }
+            }
+        }
+        assertTrue("应比较足够多的单词对", compared > 1000);
+    }
+
+    // 测试用例2：calcShortestPath 与 shortestDistance 使用双向搜索，结果与完整的最短路径树一致
+    @Test
+    public void testCalcShortestPathMatchesTree() throws IOException {
+        Random random = new Random(11);
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(randomText(random, 12, 400)));
+        textToGraph.setRenderingEnabled(false);
+        CompactGraph graph = textToGraph.graph();
+        // calcShortestPath 会打印每条路径，测试期间不输出
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            compareWithTrees(textToGraph, graph);
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+
+    // 测试用例3：calcShortestPaths 对重复的目标只计算一次，第 k 个不同的目标对应编号为 k 的图像文件
+    @Test
+    public void testCalcShortestPathsDeduplicatesAndNumbersTargets() throws Exception {
+        new File("./graph").mkdirs();
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader("the quick brown fox jumps over the lazy dog and the dog barks at the fox"));
+        List<String> rendered = Collections.synchronizedList(new ArrayList<>());
+        RenderQueue queue = new RenderQueue((dotFilePath, imageFilePath) -> rendered.add(imageFilePath), 1, 16);
+        textToGraph.setRenderQueue(queue);
+        List<String> targets = Arrays.asList("fox", "dog", "fox", "missing", "the", "dog", "lazy");
+        List<String> distinct = Arrays.asList("fox", "dog", "missing", "the", "lazy");
+
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        Map<String, List<List<Object>>> result;
+        try {
+            result = textToGraph.calcShortestPaths("the", targets, "the");
+            queue.close();
+        } finally {
+            System.setOut(originalOut);
+        }
+        try {
+            assertEquals("每个不同的目标只出现一次，按首次出现的顺序排列", distinct, new ArrayList<>(result.keySet()));
+            assertNull("不在图中的目标没有路径", result.get("missing"));
+            String printed = output.toString("UTF-8");
+            assertEquals("重复的目标不应重复打印", 1, printed.split("到 \"dog\" 的最短路径", -1).length - 1);
+
+            // 编号 3 属于没有路径的 missing，不生成图像
+            Set<String> expectedImages = new HashSet<>();
+            for (int k : new int[]{1, 2, 4, 5}) {
+                expectedImages.add("./graph/directed_graph_shortest" + k + ".png");
+            }
+            assertEquals(expectedImages, new HashSet<>(rendered));
+            assertEquals("每个图像只渲染一次", expectedImages.size(), rendered.size());
+            assertFalse(new File(dotPath(3)).exists());
+            for (int k = 1; k <= distinct.size(); k++) {
+                String target = distinct.get(k - 1);
+                if (result.get(target) == null) {
+                    continue;
+                }
+                assertEquals("结果应与单独查询相同: " + target,
+                        pathSet(textToGraph.shortestPathTree("the").paths(target)), pathSet(result.get(target)));
+                String dot = new String(Files.readAllBytes(Paths.get(dotPath(k))), StandardCharsets.UTF_8);
+                assertTrue("第 " + k + " 个图像应标记 " + target,
+                        dot.contains("  \"" + target + "\" [fillcolor=\"blue20\"];"));
+            }
+        } finally {
+            for (int k = 1; k <= distinct.size(); k++) {
+                new File(dotPath(k)).delete();
+            }
+        }
+    }
+
+    // 测试用例4：最短路径条数超过 Long.MAX_VALUE 时饱和而不溢出，列出的路径条数受 DEFAULT_PATH_LIMIT 限制
+    @Test
+    public void testPathCountSaturatesAndListingIsLimited() throws IOException {
+        // 2^62 条恰好可以表示，2^63 条及以上饱和为 Long.MAX_VALUE
+        for (int diamonds : new int[]{1, 62, 63, 70}) {
+            TextToGraph textToGraph = diamonds(diamonds);
+            CompactGraph graph = textToGraph.graph();
+            String start = node("a", 0);
+            String end = node("a", diamonds);
+            long expected = diamonds < 63 ? 1L << diamonds : Long.MAX_VALUE;
+            assertEquals("单源最短路径树的路径条数: " + diamonds, expected,
+                    textToGraph.shortestPathTree(start).countPaths(end));
+            assertEquals("双向搜索的路径条数: " + diamonds, expected,
+                    BidirectionalSearch.run(graph, graph.id(start), graph.id(end)).countPaths());
+        }
+
+        TextToGraph textToGraph = diamonds(70);
+        textToGraph.setRenderingEnabled(false);
+        String start = node("a", 0);
+        String end = node("a", 70);
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        List<List<Object>> paths;
+        List<List<Object>> limited;
+        Map<String, List<List<Object>>> batch;
+        try {
+            paths = textToGraph.calcShortestPath(start, end, 1, start);
+            limited = textToGraph.calcShortestPath(start, end, 1, start, 7);
+            batch = textToGraph.calcShortestPaths(start, Collections.singletonList(end), start);
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertEquals("默认最多列出 DEFAULT_PATH_LIMIT 条", TextToGraph.DEFAULT_PATH_LIMIT, paths.size());
+        assertEquals("列出的路径应互不相同", TextToGraph.DEFAULT_PATH_LIMIT, pathSet(paths).size());
+        for (List<Object> path : paths) {
+            assertEquals("每条路径都应是最短路径", 140, path.get(1));
+        }
+        assertEquals(7, limited.size());
+        assertEquals(TextToGraph.DEFAULT_PATH_LIMIT, batch.get(end).size());
+        String printed = output.toString("UTF-8");
+        assertTrue("应打印饱和后的总条数", printed.contains("找到 " + Long.MAX_VALUE + " 条"));
+        assertTrue(printed.contains("仅列出前 " + TextToGraph.DEFAULT_PATH_LIMIT + " 条："));
+        assertTrue(printed.contains("仅列出前 7 条："));
+    }
+
+    // 由 count 个菱形串联而成的图：每个菱形有两条等长的路径，起点到终点共有 2^count 条最短路径
+    private static TextToGraph diamonds(int count) {
+        TextToGraph textToGraph = new TextToGraph();
+        for (int i = 0; i < count; i++) {
+            textToGraph.addEdge(node("a", i), node("b", i));
+            textToGraph.addEdge(node("a", i), node("c", i));
+            textToGraph.addEdge(node("b", i), node("a", i + 1));
+            textToGraph.addEdge(node("c", i), node("a", i + 1));
+        }
+        return textToGraph;
+    }
+
+    private static String node(String prefix, int i) {
+        return prefix + (char) ('a' + i / 26) + (char) ('a' + i % 26);
+    }
+
+    private static String dotPath(int k) {
+        return "./graph/directed_graph_shortest" + k + ".dot";
+    }
+
+    private static void compareWithTrees(TextToGraph textToGraph, CompactGraph graph) {
+        for (int source = 0; source < graph.size(); source++) {
+            ShortestPathTree tree = textToGraph.shortestPathTree(graph.word(source));
+            for (int target = 0; target < graph.size(); target++) {
+                String word1 = graph.word(source);
+                String word2 = graph.word(target);
+                int distance = tree.distance(word2);
+                Set<List<String>> expected = pathSet(tree.paths(word2, TextToGraph.DEFAULT_PATH_LIMIT));
+                long count = tree.countPaths(word2);
+
+                assertEquals("最短距离应一致", distance, textToGraph.shortestDistance(word1, word2));
+                List<List<Object>> paths = textToGraph.calcShortestPath(word1, word2, 1, word1);
+                if (distance < 0) {
+                    assertNull("不可达时应返回 null", paths);
+                } else if (count <= TextToGraph.DEFAULT_PATH_LIMIT) {
+                    assertEquals("最短路径集合应一致", expected, pathSet(paths));
+                } else {
+                    assertEquals("路径过多时应只列出前若干条", TextToGraph.DEFAULT_PATH_LIMIT, paths.size());
+                }
+                // calcShortestPath 会覆盖线程工作区，重新取得最短路径树
+                tree = textToGraph.shortestPathTree(word1);
+            }
+        }
+    }
+
+    // 少量单词组成的随机文本：重复出现的相邻单词对产生不同的边权，等长的最短路径也很多
+    private static CompactGraph randomGraph(Random random) throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(randomText(random, 6 + random.nextInt(10), 30 + random.nextInt(200))));
+        return textToGraph.graph();
+    }
+
+    private static String randomText(Random random, int vocabulary, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append("w").append((char) ('a' + random.nextInt(vocabulary))).append(' ');
+        }
+        return text.toString();
+    }
+
+    @SuppressWarnings("unchecked") // 路径列表的第一个元素是单词列表
+    private static Set<List<String>> pathSet(List<List<Object>> paths) {
+        Set<List<String>> result = new HashSet<>();
+        for (List<Object> path : paths) {
+            result.add(new ArrayList<>((List<String>) path.get(0)));
+        }
+        return result;
+    }
+}
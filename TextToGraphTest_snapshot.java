@@ -0,0 +1,102 @@
+import org.junit.Test;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.CRC32;
+
+public class TextToGraphTest_snapshot {
+
+    private static final int HEADER_BYTES = 40; // 快照文件头的字节数，校验和位于第 24 个字节起
+    private final Path snapshotPath = Paths.get("./test/junit_snapshot.bin");
+    private final String corpusPath = "./test/Cursed Be The Treasure.txt";
+
+    @After
+    public void tearDown() {
+        new File(snapshotPath.toString()).delete();
+    }
+
+    // 测试用例1：保存后再加载得到相同的单词、编号、边、权值和指纹，查询结果也相同
+    @Test
+    public void testSaveLoadRoundTrip() throws IOException {
+        TextToGraph original = new TextToGraph();
+        String[] words = original.buildDirectedGraph(corpusPath);
+        original.save(snapshotPath);
+
+        TextToGraph restored = new TextToGraph();
+        String[] loaded = restored.load(snapshotPath);
+        CompactGraph expected = original.graph();
+        CompactGraph actual = restored.graph();
+        assertEquals("单词数应一致", expected.size(), actual.size());
+        assertEquals("边数应一致", expected.edgeCount(), actual.edgeCount());
+        for (int u = 0; u < expected.size(); u++) {
+            assertEquals("单词编号应一致", expected.word(u), actual.word(u));
+            assertEquals("出边应一致", expected.outEnd(u), actual.outEnd(u));
+        }
+        for (int e = 0; e < expected.edgeCount(); e++) {
+            assertEquals("边的终点应一致", expected.target(e), actual.target(e));
+            assertEquals("边的权值应一致", expected.weight(e), actual.weight(e));
+        }
+        assertEquals("图指纹应一致", expected.fingerprint(), actual.fingerprint());
+        // 按编号顺序返回的单词与构建时按首次出现顺序返回的单词相同（构建的返回值以空串开头时除外）
+        assertEquals(Arrays.asList(words).subList(words.length - loaded.length, words.length), Arrays.asList(loaded));
+        assertEquals(original.queryBridgeWords("the", "of", false), restored.queryBridgeWords("the", "of", false));
+        assertEquals(original.shortestDistance("the", "treasure"), restored.shortestDistance("the", "treasure"));
+    }
+
+    // 测试用例2：改动任意一个字节或截断文件后加载，都以 IOException 失败，不会抛出其他异常
+    @Test
+    public void testCorruptedSnapshotFailsWithIOException() throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader("the quick brown fox jumps over the lazy dog and the dog barks at the fox"));
+        textToGraph.save(snapshotPath);
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+
+        for (int position = 0; position < bytes.length; position++) {
+            for (int mask : new int[]{0x01, 0x80, 0xFF}) {
+                byte[] corrupted = bytes.clone();
+                corrupted[position] ^= mask;
+                assertLoadFails("第 " + position + " 个字节被改动", corrupted);
+            }
+        }
+        for (int length = 0; length < bytes.length; length++) {
+            assertLoadFails("截断为 " + length + " 个字节", Arrays.copyOf(bytes, length));
+        }
+        assertLoadFails("文件末尾多出数据", Arrays.copyOf(bytes, bytes.length + 4));
+
+        // 文件头不在校验和范围内：声明极大的节点数时应在分配数组之前失败
+        ByteBuffer huge = ByteBuffer.wrap(bytes.clone());
+        huge.putInt(8, Integer.MAX_VALUE - 8);
+        assertLoadFails("节点数过大", huge.array());
+
+        // 校验和正确但边的目标越界（例如写出快照的程序有误）时，也应以 IOException 失败
+        int n = textToGraph.graph().size();
+        ByteBuffer outOfRange = ByteBuffer.wrap(bytes.clone());
+        outOfRange.putInt(HEADER_BYTES + 4 * (n + 1), n);
+        CRC32 crc = new CRC32();
+        crc.update(outOfRange.array(), HEADER_BYTES, bytes.length - HEADER_BYTES);
+        outOfRange.putLong(24, crc.getValue());
+        assertLoadFails("边的目标越界", outOfRange.array());
+
+        // 未改动的文件仍可加载
+        Files.write(snapshotPath, bytes);
+        assertEquals(textToGraph.graph().fingerprint(), GraphSnapshot.load(snapshotPath).fingerprint());
+    }
+
+    private void assertLoadFails(String message, byte[] content) throws IOException {
+        Files.write(snapshotPath, content);
+        try {
+            GraphSnapshot.load(snapshotPath);
+            fail(message + "：应抛出 IOException");
+        } catch (IOException expected) {
+            // 校验和、指纹或格式检查失败
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class TextToGraphTest_subgraph {
+
+    // 测试用例1：沿出边和入边各走 hops 步，保留到达的节点之间的所有边（包括最外层节点之间的边）
+    @Test
+    public void testHopsFollowBothDirections() {
+        CompactGraph graph = graph(new String[]{"a", "b", "c", "d", "e", "x", "y"},
+                "a b 1", "b c 1", "c d 1", "d e 1", "x c 2", "c y 3", "y x 4");
+        int c = graph.id("c");
+
+        CompactGraph one = SubgraphExtractor.extract(graph, new int[]{c}, 1, 0, new long[0]);
+        assertEquals("一步之内应到达前驱和后继", set("b", "c", "d", "x", "y"), words(one));
+        assertEquals("应保留到达的节点之间的所有边及其权值",
+                set("b->c:1", "c->d:1", "x->c:2", "c->y:3", "y->x:4"), edges(one));
+
+        CompactGraph two = SubgraphExtractor.extract(graph, new int[]{c}, 2, 0, new long[0]);
+        assertEquals("两步之内应到达整个图", set("a", "b", "c", "d", "e", "x", "y"), words(two));
+        assertEquals(edges(graph), edges(two));
+
+        CompactGraph zero = SubgraphExtractor.extract(graph, new int[]{c}, 0, 0, new long[0]);
+        assertEquals("零步时只有起点", set("c"), words(zero));
+        assertTrue(edges(zero).isEmpty());
+    }
+
+    // 测试用例2：限制边数时必需的边总会保留，其余按权值降序，权值相同时保留离起点较近的节点发出的边
+    @Test
+    public void testTopEdgesKeepRequiredAndPreferNearerSources() {
+        // near 的编号小于 seed，按编号排序会先选 near -> far，按离起点的距离则应先选 seed -> near
+        CompactGraph graph = graph(new String[]{"near", "far", "seed", "end", "heavy"},
+                "seed end 1", "seed near 2", "near far 2", "end heavy 3");
+        int[] seeds = {graph.id("seed"), graph.id("end")};
+        long[] required = {((long) graph.id("seed") << 32) | graph.id("end")};
+
+        CompactGraph all = SubgraphExtractor.extract(graph, seeds, 2, 0, required);
+        assertEquals("不限边数时应保留全部四条边", 4, edges(all).size());
+
+        CompactGraph capped = SubgraphExtractor.extract(graph, seeds, 2, 3, required);
+        assertEquals(set("seed->end:1", "end->heavy:3", "seed->near:2"), edges(capped));
+        assertEquals("只保留起点和剩余边的端点", set("near", "seed", "end", "heavy"), words(capped));
+
+        CompactGraph tight = SubgraphExtractor.extract(graph, seeds, 2, 1, required);
+        assertEquals("必需的边优先于权值更大的边", set("seed->end:1"), edges(tight));
+        assertEquals(set("seed", "end"), words(tight));
+    }
+
+    // 由 "来源 目标 权值" 形式的边构造紧凑图，单词编号即 words 中的下标
+    private static CompactGraph graph(String[] words, String... edges) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            ids.put(words[i], i);
+        }
+        int[] rowStarts = new int[words.length + 1];
+        for (String edge : edges) {
+            rowStarts[ids.get(edge.split(" ")[0]) + 1]++;
+        }
+        for (int u = 0; u < words.length; u++) {
+            rowStarts[u + 1] += rowStarts[u];
+        }
+        long[] entries = new long[edges.length];
+        int[] next = Arrays.copyOf(rowStarts, words.length);
+        for (String edge : edges) {
+            String[] parts = edge.split(" ");
+            entries[next[ids.get(parts[0])]++] = ((long) ids.get(parts[1]) << 32) | Integer.parseInt(parts[2]);
+        }
+        return CompactGraph.fromRows(words, rowStarts, entries);
+    }
+
+    private static Set<String> words(CompactGraph graph) {
+        Set<String> result = new HashSet<>();
+        for (int u = 0; u < graph.size(); u++) {
+            result.add(graph.word(u));
+        }
+        return result;
+    }
+
+    private static Set<String> edges(CompactGraph graph) {
+        Set<String> result = new HashSet<>();
+        for (int u = 0; u < graph.size(); u++) {
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                result.add(graph.word(u) + "->" + graph.word(graph.target(e)) + ":" + graph.weight(e));
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
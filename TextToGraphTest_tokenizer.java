@@ -0,0 +1,110 @@
+import org.junit.Test;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+public class TextToGraphTest_tokenizer {
+
+    private final String testFilePath = "./test/junit_tokenizer.txt";
+
+    @After
+    public void tearDown() {
+        new File(testFilePath).delete();
+    }
+
+    // 测试用例1：流式切分得到的单词序列与原先 replaceAll + split 的结果相同
+    @Test
+    public void testTokensMatchReplaceAllSplit() throws IOException {
+        for (String text : cases()) {
+            if (text.isEmpty()) {
+                // 空文本 split 得到 {""}，切分器不产生任何单词，由 buildDirectedGraph 单独处理
+                assertEquals(Collections.singletonList(""), reference(text));
+                assertTrue(tokens(text, true).isEmpty());
+                continue;
+            }
+            assertEquals("切分结果应一致: " + describe(text), reference(text), tokens(text, true));
+        }
+        assertEquals("开头的分隔符应先产生空词", Arrays.asList("", "hello", "world"), tokens("  hello, World", true));
+        assertEquals("追加文本时不产生空词", Arrays.asList("hello", "world"), tokens("  hello, World", false));
+        assertEquals("非 ASCII 字母视为分隔符", Arrays.asList("caf", "na", "ve"), tokens("Café naïve", true));
+    }
+
+    // 测试用例2：buildDirectedGraph 的返回值和边与原先的实现相同（返回值为按首次出现顺序去重的单词）
+    @Test
+    public void testBuildDirectedGraphMatchesOldPipeline() throws IOException {
+        for (String text : cases()) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(testFilePath), "UTF-8")) {
+                writer.write(text);
+            }
+            TextToGraph textToGraph = new TextToGraph();
+            String[] words = textToGraph.buildDirectedGraph(testFilePath);
+            List<String> expected = reference(text);
+            assertEquals("返回的单词应一致: " + describe(text),
+                    new ArrayList<>(new LinkedHashSet<>(expected)), Arrays.asList(words));
+
+            Map<String, Integer> expectedEdges = new HashMap<>();
+            for (int i = 0; i + 1 < expected.size(); i++) {
+                expectedEdges.merge(expected.get(i) + " -> " + expected.get(i + 1), 1, Integer::sum);
+            }
+            Map<String, Integer> edges = new HashMap<>();
+            CompactGraph graph = textToGraph.graph();
+            for (int u = 0; u < graph.size(); u++) {
+                for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                    edges.put(graph.word(u) + " -> " + graph.word(graph.target(e)), graph.weight(e));
+                }
+            }
+            assertEquals("边及其权值应一致: " + describe(text), expectedEdges, edges);
+        }
+    }
+
+    private static List<String> cases() {
+        StringBuilder acrossBuffer = new StringBuilder();
+        for (int i = 0; i < 8190; i++) {
+            acrossBuffer.append(i % 7 == 0 ? '\n' : ' ');
+        }
+        acrossBuffer.append("Boundary word crosses the Buffer boundary");
+        StringBuilder longWord = new StringBuilder("start ");
+        for (int i = 0; i < 20000; i++) {
+            longWord.append((char) ('a' + i % 26));
+        }
+        longWord.append(" end start");
+        return Arrays.asList(
+                "the quick brown fox jumps over the lazy dog\nthe dog barks at the fox\n",
+                "  ,42 leading separator then Words",
+                "",
+                "   \n\t\r\n  ",
+                "Café naïve 中文 résumé, façade",
+                "end without newline",
+                "one",
+                acrossBuffer.toString(),
+                longWord.toString());
+    }
+
+    // 原先的实现：按行读取并以空格连接，把非字母替换为空格、转为小写后按空白切分
+    private static List<String> reference(String text) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                content.append(line).append(" ");
+            }
+        }
+        return Arrays.asList(content.toString().replaceAll("[^a-zA-Z\\n\\r]", " ").toLowerCase().split("\\s+"));
+    }
+
+    private static List<String> tokens(String text, boolean keepLeadingEmpty) throws IOException {
+        WordTokenizer tokenizer = new WordTokenizer(new StringReader(text), keepLeadingEmpty);
+        List<String> result = new ArrayList<>();
+        String word;
+        while ((word = tokenizer.next()) != null) {
+            result.add(word);
+        }
+        return result;
+    }
+
+    private static String describe(String text) {
+        return text.length() <= 40 ? "\"" + text + "\"" : text.length() + " 个字符的文本";
+    }
+}
@@ -0,0 +1,169 @@
+import org.junit.Test;
+import org.junit.After;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+public class TextToGraphTest_walkbatch {
+
+    private static final int SHARDS = 3;
+    private final String outputPrefix = "./test/junit_walks";
+
+    @After
+    public void tearDown() {
+        for (int k = 0; k < SHARDS; k++) {
+            new File(shardPath(k).toString()).delete();
+        }
+    }
+
+    // 测试用例1：访问次数之和等于总步数，分片文件中每次游走占一行，单词与访问次数一致
+    @Test
+    public void testCountsMatchShardFiles() throws Exception {
+        TextToGraph textToGraph = graph("the quick brown fox jumps over the lazy dog the dog barks at the fox");
+        RandomWalkBatch batch = textToGraph.randomWalks(200, new WalkOptions().seed(1).maxSteps(30), outputPrefix, SHARDS);
+        assertEquals(200, batch.walkCount());
+        batch.await();
+        assertTrue(batch.isDone());
+
+        long sum = 0;
+        for (long count : batch.visitCounts().values()) {
+            sum += count;
+        }
+        assertEquals("访问次数之和应等于总步数", batch.totalSteps(), sum);
+        List<String> lines = shardLines();
+        assertEquals("每次游走应占一行", 200, lines.size());
+        Map<String, Long> counted = new HashMap<>();
+        for (String line : lines) {
+            String[] words = line.split(" ");
+            assertTrue("每次游走最多 30 步", words.length <= 30);
+            for (String word : words) {
+                counted.merge(word, 1L, Long::sum);
+            }
+        }
+        assertEquals("分片文件中的单词应与访问次数一致", batch.visitCounts(), counted);
+
+        // 不写文件时只统计访问次数
+        RandomWalkBatch countOnly = textToGraph.randomWalks(200, new WalkOptions().seed(1).maxSteps(30), null, 0);
+        countOnly.await();
+        assertEquals("相同的种子访问次数应相同", batch.visitCounts(), countOnly.visitCounts());
+        assertEquals(batch.totalSteps(), countOnly.totalSteps());
+    }
+
+    // 测试用例2：固定种子时每次游走的序列可以复现，与分片和线程调度无关
+    @Test
+    public void testSeededBatchesAreReproducible() throws Exception {
+        TextToGraph textToGraph = graph("the quick brown fox jumps over the lazy dog the dog barks at the fox");
+        List<String> first = runAndCollect(textToGraph, 7, SHARDS);
+        assertEquals("相同的种子应得到相同的游走", first, runAndCollect(textToGraph, 7, 1));
+        assertNotEquals("不同的种子应得到不同的游走", first, runAndCollect(textToGraph, 8, SHARDS));
+    }
+
+    // 测试用例3：cancel 只停止指定的游走，cancelAll 停止全部游走；已写出的行都是完整的游走
+    @Test
+    public void testCancelSingleWalksAndAll() throws Exception {
+        // 环上的游走没有步数限制，只有取消才会结束
+        TextToGraph cycle = graph("a b c a");
+        WalkOptions options = new WalkOptions().seed(3).start("a").stepDelayMillis(1);
+        RandomWalkBatch batch = cycle.randomWalks(3, options, outputPrefix, SHARDS);
+        batch.cancel(0);
+        batch.cancel(2);
+        Thread.sleep(200);
+        assertFalse("第 1 次游走尚未取消", batch.isDone());
+        batch.cancel(1);
+        batch.await();
+        assertTrue(batch.totalSteps() > 0);
+
+        RandomWalkBatch all = cycle.randomWalks(20, options, outputPrefix, SHARDS);
+        Thread.sleep(100);
+        all.cancelAll();
+        all.await();
+        for (String line : shardLines()) {
+            String[] words = line.split(" ");
+            for (int i = 0; i < words.length; i++) {
+                assertEquals("每行应是从 a 开始沿环行走的完整序列", String.valueOf("abc".charAt(i % 3)), words[i]);
+            }
+        }
+        long sum = 0;
+        for (long count : all.visitCounts().values()) {
+            sum += count;
+        }
+        assertEquals(all.totalSteps(), sum);
+    }
+
+    // 测试用例4：游走中途写入失败时整批失败而不会挂起，失败的分片不再被其他游走使用
+    @Test
+    public void testWriteFailureFailsTheBatch() throws Exception {
+        assumeTrue("需要 /dev/full 模拟磁盘已满", new File("/dev/full").exists());
+        TextToGraph cycle = graph("a b c a");
+        Files.createSymbolicLink(shardPath(0), Paths.get("/dev/full"));
+        // 每次游走写出的内容远大于缓冲区，写入 /dev/full 的分片会在游走中途失败
+        RandomWalkBatch batch = cycle.randomWalks(6, new WalkOptions().seed(1).maxSteps(100000), outputPrefix, 2);
+        try {
+            batch.await();
+            fail("写入失败时 await 应抛出 IOException");
+        } catch (IOException expected) {
+            // 磁盘已满
+        }
+        assertTrue(batch.isDone());
+        // 失败的分片若被放回，之后的游走会轮流在两个分片上进行，完成的步数将达到 300000
+        assertTrue("失败后其余游走应被取消", batch.totalSteps() < 2 * 100000L);
+        // 第二个分片中的行都是完整的：取消的游走在下一步之前停止并写出换行
+        for (String line : Files.readAllLines(shardPath(1), StandardCharsets.UTF_8)) {
+            assertTrue(line.matches("[abc]( [abc])*"));
+        }
+    }
+
+    // 测试用例5：游走本身没有失败、关闭分片时写出缓冲区失败，同样使整批失败
+    @Test
+    public void testCloseFailureFailsTheBatch() throws Exception {
+        assumeTrue("需要 /dev/full 模拟磁盘已满", new File("/dev/full").exists());
+        TextToGraph cycle = graph("a b c a");
+        Files.createSymbolicLink(shardPath(0), Paths.get("/dev/full"));
+        // 内容很少，全部留在缓冲区中，直到关闭时才写出
+        RandomWalkBatch batch = cycle.randomWalks(1, new WalkOptions().seed(1).maxSteps(5), outputPrefix, 1);
+        try {
+            batch.await();
+            fail("关闭分片失败时 await 应抛出 IOException");
+        } catch (IOException expected) {
+            // 磁盘已满
+        }
+        assertEquals("游走本身已完成", 5, batch.totalSteps());
+    }
+
+    private List<String> runAndCollect(TextToGraph textToGraph, long seed, int shards) throws Exception {
+        RandomWalkBatch batch = textToGraph.randomWalks(100, new WalkOptions().seed(seed).maxSteps(20), outputPrefix, shards);
+        batch.await();
+        List<String> lines = shardLines();
+        Collections.sort(lines);
+        tearDown();
+        return lines;
+    }
+
+    private List<String> shardLines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int k = 0; k < SHARDS; k++) {
+            if (Files.exists(shardPath(k))) {
+                lines.addAll(Files.readAllLines(shardPath(k), StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    private Path shardPath(int k) {
+        return Paths.get(outputPrefix + "-" + k + ".txt");
+    }
+
+    private static TextToGraph graph(String text) throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(text));
+        return textToGraph;
+    }
+}
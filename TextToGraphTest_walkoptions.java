@@ -0,0 +1,240 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TextToGraphTest_walkoptions {
+
+    // 测试用例1：固定种子时游走序列可以复现，不同的种子得到不同的序列
+    @Test
+    public void testSeededWalksAreReproducible() throws IOException {
+        TextToGraph textToGraph = graph("the quick brown fox jumps over the lazy dog the dog barks at the fox "
+                + "quick fox jumps high over the dog");
+        for (boolean weighted : new boolean[]{false, true}) {
+            WalkOptions options = new WalkOptions().seed(5).maxSteps(200).weighted(weighted);
+            String first = walk(textToGraph, options);
+            assertEquals("相同的种子应得到相同的序列", first, walk(textToGraph, options));
+            assertEquals("另一个实例上也应相同", first, walk(graph("the quick brown fox jumps over the lazy dog the dog "
+                    + "barks at the fox quick fox jumps high over the dog"), options));
+            boolean differs = false;
+            for (long seed = 6; seed < 16 && !differs; seed++) {
+                differs = !first.equals(walk(textToGraph, new WalkOptions().seed(seed).maxSteps(200).weighted(weighted)));
+            }
+            assertTrue("不同的种子应得到不同的序列", differs);
+        }
+    }
+
+    // 测试用例2：达到最大步数时停止，返回值等于写出的单词数；maxSteps 为负数时抛出异常
+    @Test
+    public void testMaxStepsLimitsTheWalk() throws IOException {
+        // 环上的节点都有出边，只有步数限制会结束游走
+        TextToGraph cycle = graph("a b c a");
+        for (long maxSteps : new long[]{0, 1, 7, 1000}) {
+            StringWriter output = new StringWriter();
+            long steps = cycle.randomWalk(new WalkOptions().seed(1).start("a").maxSteps(maxSteps), output);
+            assertEquals(maxSteps, steps);
+            assertEquals("写出的单词数应等于返回值", maxSteps, words(output.toString()).size());
+        }
+        assertEquals("a b c a b c a ", walk(cycle, new WalkOptions().start("a").maxSteps(7)));
+
+        // 外部停止条件在每访问一个节点之前检查一次
+        int[] checks = {0};
+        StringWriter output = new StringWriter();
+        assertEquals(3, cycle.randomWalk(new WalkOptions().start("b").stopWhen(() -> ++checks[0] > 3), output));
+        assertEquals("b c a ", output.toString());
+        try {
+            new WalkOptions().maxSteps(-1);
+            fail("maxSteps 为负数时应抛出 IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 参数检查
+        }
+    }
+
+    // 测试用例3：走到没有出边的节点时停止；起点不在图中或图为空时不访问任何节点
+    @Test
+    public void testWalkStopsAtDeadEnd() throws IOException {
+        TextToGraph chain = graph("a b c d");
+        for (boolean weighted : new boolean[]{false, true}) {
+            assertEquals("a b c d ", walk(chain, new WalkOptions().start("a").weighted(weighted)));
+            assertEquals("d ", walk(chain, new WalkOptions().start("d").weighted(weighted)));
+            assertEquals("", walk(chain, new WalkOptions().start("missing").weighted(weighted)));
+        }
+        for (long seed = 0; seed < 20; seed++) {
+            List<String> visited = words(walk(chain, new WalkOptions().seed(seed)));
+            assertEquals("随机起点时也应走到 d 为止", "d", visited.get(visited.size() - 1));
+        }
+        StringWriter output = new StringWriter();
+        assertEquals(0, new TextToGraph().randomWalk(new WalkOptions().seed(1), output));
+        assertEquals("", output.toString());
+    }
+
+    // 测试用例4：加权模式按边权成比例地选择后继（权值 3:1:1），等概率模式与边权无关
+    @Test
+    public void testWeightedChoiceFollowsEdgeWeights() throws IOException {
+        // a -> b 出现 3 次，a -> c 与 a -> d 各出现 1 次
+        TextToGraph textToGraph = graph("a b a b a b a c a d a");
+        CompactGraph graph = textToGraph.graph();
+        int samples = 300000;
+        AliasSampler sampler = new AliasSampler(graph);
+        SplittableRandom random = new SplittableRandom(17);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < samples; i++) {
+            counts.merge(graph.word(sampler.next(graph.id("a"), random)), 1, Integer::sum);
+        }
+        assertFrequency(counts, "b", 0.6, samples);
+        assertFrequency(counts, "c", 0.2, samples);
+        assertFrequency(counts, "d", 0.2, samples);
+
+        // 游走中每隔一步回到 a，统计 a 的后继
+        for (boolean weighted : new boolean[]{true, false}) {
+            List<String> visited = words(walk(textToGraph,
+                    new WalkOptions().seed(3).start("a").maxSteps(2L * samples + 1).weighted(weighted)));
+            Map<String, Integer> successors = new HashMap<>();
+            for (int i = 1; i < visited.size(); i += 2) {
+                successors.merge(visited.get(i), 1, Integer::sum);
+            }
+            assertFrequency(successors, "b", weighted ? 0.6 : 1.0 / 3, samples);
+            assertFrequency(successors, "c", weighted ? 0.2 : 1.0 / 3, samples);
+            assertFrequency(successors, "d", weighted ? 0.2 : 1.0 / 3, samples);
+        }
+
+        // 出度较大、权值各不相同的节点
+        StringBuilder text = new StringBuilder();
+        int total = 0;
+        for (int k = 1; k <= 12; k++) {
+            for (int repeat = 0; repeat < k * k; repeat++) {
+                text.append("hub n").append((char) ('a' + k)).append(' ');
+                total++;
+            }
+        }
+        CompactGraph star = graph(text.toString()).graph();
+        AliasSampler starSampler = new AliasSampler(star);
+        Map<String, Integer> starCounts = new HashMap<>();
+        for (int i = 0; i < samples; i++) {
+            starCounts.merge(star.word(starSampler.next(star.id("hub"), random)), 1, Integer::sum);
+        }
+        for (int k = 1; k <= 12; k++) {
+            assertFrequency(starCounts, "n" + (char) ('a' + k), (double) k * k / total, samples);
+        }
+        assertEquals("没有出边时返回 -1", -1, new AliasSampler(graph("x y").graph()).next(1, random));
+    }
+
+    // 测试用例5：cancel 之后 await 返回已访问的节点数，完成回调收到相同的结果；已写出的节点都是完整的
+    @Test
+    public void testWalkHandleCancelAwaitAndCallbacks() throws Exception {
+        TextToGraph cycle = graph("a b c a");
+        StringWriter output = new StringWriter();
+        CountDownLatch completed = new CountDownLatch(1);
+        long[] callbackSteps = {-1};
+        Throwable[] callbackFailure = {null};
+        WalkHandle handle = cycle.startRandomWalk(new WalkOptions().start("a").stepDelayMillis(1), output);
+        handle.onComplete((steps, failure) -> {
+            callbackSteps[0] = steps;
+            callbackFailure[0] = failure;
+            completed.countDown();
+        });
+        Thread.sleep(100);
+        assertFalse("环上的游走只有取消才会结束", handle.isDone());
+        handle.cancel();
+        long steps = handle.await();
+        assertTrue(handle.isDone());
+        assertTrue("回调应在游走结束后被调用", completed.await(5, TimeUnit.SECONDS));
+        assertEquals("回调收到的节点数应与 await 相同", steps, callbackSteps[0]);
+        assertNull("取消不算失败", callbackFailure[0]);
+        assertTrue(steps > 0);
+        assertEquals("已访问的节点应完整写出", steps, words(output.toString()).size());
+        handle.cancel();
+        assertEquals("结束后再取消没有影响", steps, handle.await());
+
+        // 游走已经结束时注册的回调立即在当前线程中调用
+        Thread[] callbackThread = {null};
+        handle.onComplete((ignored, failure) -> callbackThread[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), callbackThread[0]);
+
+        // 写入文件时，文件在完成回调之前已经关闭，回调中可以读到完整的内容
+        Path walkPath = Paths.get("./test/junit_walk_handle.txt");
+        try {
+            CountDownLatch fileRead = new CountDownLatch(1);
+            List<String> lines = new ArrayList<>();
+            WalkHandle fileWalk = graph("a b c d").startRandomWalk(new WalkOptions().start("a"), walkPath.toString());
+            fileWalk.onComplete((ignored, failure) -> {
+                try {
+                    lines.addAll(Files.readAllLines(walkPath, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    fileRead.countDown();
+                }
+            });
+            assertEquals("走到没有出边的节点时自行结束", 4, fileWalk.await());
+            assertTrue(fileRead.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("随机游走的节点:", "a b c d "), lines);
+        } finally {
+            Files.deleteIfExists(walkPath);
+        }
+
+        // 写出失败时 await 抛出 IOException，回调收到失败原因
+        CountDownLatch failed = new CountDownLatch(1);
+        Throwable[] failure = {null};
+        WalkHandle failing = cycle.startRandomWalk(new WalkOptions().start("a"), new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("磁盘已满");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        failing.onComplete((ignored, cause) -> {
+            failure[0] = cause;
+            failed.countDown();
+        });
+        try {
+            failing.await();
+            fail("写出失败时 await 应抛出 IOException");
+        } catch (IOException expected) {
+            assertEquals("磁盘已满", expected.getMessage());
+        }
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertTrue(failure[0] instanceof UncheckedIOException);
+    }
+
+    // 频率与期望概率之差不超过 5 个标准差
+    private static void assertFrequency(Map<String, Integer> counts, String word, double probability, int samples) {
+        double frequency = counts.getOrDefault(word, 0) / (double) samples;
+        double tolerance = 5 * Math.sqrt(probability * (1 - probability) / samples);
+        assertEquals("选择 " + word + " 的频率", probability, frequency, tolerance);
+    }
+
+    private static TextToGraph graph(String text) throws IOException {
+        TextToGraph textToGraph = new TextToGraph();
+        textToGraph.appendText(new StringReader(text));
+        return textToGraph;
+    }
+
+    private static String walk(TextToGraph textToGraph, WalkOptions options) throws IOException {
+        StringWriter output = new StringWriter();
+        textToGraph.randomWalk(options, output);
+        return output.toString();
+    }
+
+    private static List<String> words(String output) {
+        return output.isEmpty() ? Collections.emptyList() : Arrays.asList(output.trim().split(" "));
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * 在后台线程中进行的一次随机游走，由 TextToGraph.startRandomWalk 创建。
+ * 可以随时 cancel()，也可以注册完成回调或阻塞等待结果；等待期间不占用 CPU。
+ * 游走结果为访问的节点数，取消不算失败，已访问的节点仍会完整写出。
+ */
+public class WalkHandle {
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private volatile boolean cancelled = false;
+    private volatile Thread thread = null;
+
+    WalkHandle() {
+    }
+
+    // 游走循环每一步之前检查的取消标志
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    // 在新的守护线程中运行游走任务
+    void start(WalkTask task) {
+        Thread walker = new Thread(() -> {
+            try {
+                result.complete(task.run(this));
+            } catch (IOException e) {
+                result.completeExceptionally(new UncheckedIOException(e));
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }, "random-walk");
+        walker.setDaemon(true);
+        thread = walker;
+        walker.start();
+    }
+
+    /**
+     * 请求停止游走：设置取消标志并中断游走线程，使其不必等到当前的延迟结束。
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread walker = thread;
+        if (walker != null && !result.isDone()) {
+            walker.interrupt();
+        }
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * 注册完成回调，参数为访问的节点数和失败原因（成功时为 null）；若游走已经结束则立即在当前线程调用。
+     */
+    public WalkHandle onComplete(BiConsumer<Long, Throwable> callback) {
+        result.whenComplete(callback);
+        return this;
+    }
+
+    /**
+     * 阻塞等待游走结束并返回访问的节点数，写出失败时抛出 IOException。
+     */
+    public long await() throws InterruptedException, IOException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    // 后台线程中执行的游走
+    interface WalkTask {
+        long run(WalkHandle handle) throws IOException;
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.function.BooleanSupplier;
+
+/**
+ * 随机游走的参数：随机数种子、最大步数、每步之间的延迟、起点以及外部停止条件。
+ * 默认不设种子（每次结果不同）、不限步数、没有延迟，从随机的节点出发，并在后继节点中等概率选择。
+ * 设置方法都返回自身，便于链式调用。
+ */
+public class WalkOptions {
+    Long seed = null;
+    long maxSteps = Long.MAX_VALUE;
+    long stepDelayMillis = 0;
+    String start = null;
+    boolean weighted = false;
+    BooleanSupplier stopCondition = () -> false;
+
+    // 固定随机数种子，相同的图和种子得到相同的游走序列
+    public WalkOptions seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    // 最多访问的节点数（包括起点）
+    public WalkOptions maxSteps(long maxSteps) {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("maxSteps 不能为负数: " + maxSteps);
+        }
+        this.maxSteps = maxSteps;
+        return this;
+    }
+
+    // 每走一步后的等待时间，0 表示不等待
+    public WalkOptions stepDelayMillis(long stepDelayMillis) {
+        if (stepDelayMillis < 0) {
+            throw new IllegalArgumentException("stepDelayMillis 不能为负数: " + stepDelayMillis);
+        }
+        this.stepDelayMillis = stepDelayMillis;
+        return this;
+    }
+
+    // 起点单词，为 null 时随机选择
+    public WalkOptions start(String start) {
+        this.start = start;
+        return this;
+    }
+
+    // 为 true 时按边权（单词相邻出现的次数）成比例地选择后继节点，否则等概率选择
+    public WalkOptions weighted(boolean weighted) {
+        this.weighted = weighted;
+        return this;
+    }
+
+    // 每访问一个节点之前检查一次，返回 true 时停止游走
+    public WalkOptions stopWhen(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+        return this;
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 流式单词切分器：逐字符读取输入，把连续的英文字母识别为一个单词并转为小写，其余字符一律视为分隔符。
+ * 切分规则与原先的 replaceAll("[^a-zA-Z\\n\\r]", " ").toLowerCase().split("\\s+") 完全一致，
+ * 但任何时刻只在内存中保留当前正在识别的单词，不会把整个文件读入内存。
+ */
+public class WordTokenizer {
+    private final Reader reader;
+    private final boolean keepLeadingEmpty;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private final StringBuilder word = new StringBuilder();
+    private boolean started = false; // 是否已经读到过字符
+    private boolean leadingGap = false; // 输入是否以分隔符开头
+    private String pending = null; // 先返回空词时暂存的第一个单词
+
+    /**
+     * @param reader 输入源，由调用者负责关闭
+     * @param keepLeadingEmpty 输入以非字母开头时是否像 split("\\s+") 一样先产生一个空词 ""
+     */
+    public WordTokenizer(Reader reader, boolean keepLeadingEmpty) {
+        this.reader = reader;
+        this.keepLeadingEmpty = keepLeadingEmpty;
+    }
+
+    public WordTokenizer(Reader reader) {
+        this(reader, false);
+    }
+
+    // 判断字符是否属于单词（只接受英文字母）
+    public static boolean isWordChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // 将英文字母转为小写
+    public static char toLower(int c) {
+        return (char) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+    }
+
+    // 返回下一个单词，输入结束时返回 null
+    public String next() throws IOException {
+        if (pending != null) {
+            String result = pending;
+            pending = null;
+            return result;
+        }
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return word.length() > 0 ? finishWord() : null;
+                }
+            }
+            char c = buffer[position++];
+            if (isWordChar(c)) {
+                started = true;
+                word.append(toLower(c));
+            } else {
+                if (!started) {
+                    started = true;
+                    leadingGap = true;
+                }
+                if (word.length() > 0) {
+                    return finishWord();
+                }
+            }
+        }
+    }
+
+    private String finishWord() {
+        String result = word.toString();
+        word.setLength(0);
+        if (leadingGap && keepLeadingEmpty) {
+            // 与 split 的行为保持一致：开头的分隔符会产生一个空词
+            leadingGap = false;
+            pending = result;
+            return "";
+        }
+        leadingGap = false;
+        return result;
+    }
+}